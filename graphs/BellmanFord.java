@@ -56,6 +56,40 @@ public class BellmanFord {
         return dist;
     }
 
+    /**
+     * Same as above for a graph in CSR form, in O(V + E) memory. Unreachable vertices keep the
+     * distance Integer.MAX_VALUE, and are skipped, so their edges are never relaxed. The loop
+     * stops early after the first round that does not change any distance, since no later round
+     * could change one either.
+     */
+    public static int[] getShortestDistances(final CsrGraph graph, final int start) {
+        final int n = graph.vertices();
+        final int[] dist = new int[n];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        dist[start] = 0;
+
+        for (int i = 0; i < n; i++) {
+            boolean changed = false;
+            for (int a = 0; a < n; a++) {
+                if (dist[a] == Integer.MAX_VALUE) {
+                    continue;
+                }
+                for (int e = graph.offsets[a]; e < graph.offsets[a + 1]; e++) {
+                    final int b = graph.targets[e];
+                    final int newDist = dist[a] + graph.weights[e];
+                    if (newDist < dist[b]) {
+                        dist[b] = newDist;
+                        changed = true;
+                    }
+                }
+            }
+            if (!changed) {
+                break;
+            }
+        }
+        return dist;
+    }
+
     public static void main(final String[] args) {
         final Edge[] edges = {
             new Edge(1, 2, 2),
@@ -70,6 +104,18 @@ public class BellmanFord {
         System.out.println(Arrays.toString(dist));
         System.out.println("Expected");
         System.out.println(Arrays.toString(new int[]{ Integer.MAX_VALUE, 0, 2, 3, 1, 3 }));
+
+        final int[] sources = new int[edges.length];
+        final int[] targets = new int[edges.length];
+        final int[] weights = new int[edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            sources[i] = edges[i].getStart();
+            targets[i] = edges[i].getEnd();
+            weights[i] = edges[i].getWeight();
+        }
+        final CsrGraph graph = CsrGraph.fromEdges(6, sources, targets, weights);
+        System.out.println("On CsrGraph:");
+        System.out.println(Arrays.toString(getShortestDistances(graph, 1)));
     }
 }
 
@@ -0,0 +1,206 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * CsrGraph is a directed weighted graph in compressed sparse row (CSR) form, i.e. the adjacency
+ * lists of all vertices concatenated into flat arrays:
+ *  the edges of vertex u are the slots offsets[u], ..., offsets[u+1] - 1
+ *  slot i is an edge u -> targets[i] with weight weights[i]
+ * so it takes O(V + E) memory, instead of the O(V^2) of an adjacency matrix, and iterating over
+ * the edges of a vertex is a sequential scan. An undirected graph stores every edge in both
+ * directions.
+ *
+ * The graph is built from an edge list by sorting the edges by their source vertex: each edge is
+ * packed into a long as (source << 32 | edge index), and the keys are sorted with parallelSort,
+ * so the edges of a vertex keep the order of the edge list. Then the slots are filled in parallel
+ * from the sorted keys, and offsets[u] is written by the first slot whose source is u or greater,
+ * which is again independent for every slot.
+ */
+public class CsrGraph {
+    private static final int PARALLEL_MIN_EDGES = 1 << 16;
+
+    final int n;
+    final int[] offsets;
+    final int[] targets;
+    final int[] weights;
+
+    private CsrGraph(final int n, final int[] offsets, final int[] targets, final int[] weights) {
+        this.n = n;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Build a directed graph with the edges sources[i] -> targets[i] of weight weights[i].
+     * @param n: number of vertices
+     */
+    public static CsrGraph fromEdges(final int n, final int[] sources, final int[] targets, final int[] weights) {
+        if (sources.length != targets.length || sources.length != weights.length) {
+            throw new IllegalArgumentException(String.format("Got %d sources, %d targets and %d weights.",
+                        sources.length, targets.length, weights.length));
+        }
+        checkVertices(n, sources);
+        checkVertices(n, targets);
+        final int m = sources.length;
+        final long[] keys = new long[m];
+        range(m).forEach(i -> keys[i] = (long) sources[i] << 32 | i);
+        Arrays.parallelSort(keys);
+
+        final int[] offsets = new int[n + 1];
+        final int[] csrTargets = new int[m];
+        final int[] csrWeights = new int[m];
+        range(m).forEach(k -> {
+            final int i = (int) keys[k];
+            csrTargets[k] = targets[i];
+            csrWeights[k] = weights[i];
+            // slot k is the first slot of every vertex after the source of slot k - 1.
+            final int source = (int) (keys[k] >>> 32);
+            final int previous = k == 0 ? -1 : (int) (keys[k - 1] >>> 32);
+            for (int u = previous + 1; u <= source; u++) {
+                offsets[u] = k;
+            }
+        });
+        final int last = m == 0 ? -1 : (int) (keys[m - 1] >>> 32);
+        Arrays.fill(offsets, last + 1, n + 1, m);
+        return new CsrGraph(n, offsets, csrTargets, csrWeights);
+    }
+
+    /**
+     * Build an undirected graph with the edges sources[i] <-> targets[i] of weight weights[i].
+     * @param n: number of vertices
+     */
+    public static CsrGraph fromUndirectedEdges(
+            final int n,
+            final int[] sources,
+            final int[] targets,
+            final int[] weights
+    ) {
+        final int m = sources.length;
+        if (m > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException(String.format("Too many edges: %d", m));
+        }
+        final int[] both = new int[2 * m];
+        final int[] bothTargets = new int[2 * m];
+        final int[] bothWeights = new int[2 * m];
+        System.arraycopy(sources, 0, both, 0, m);
+        System.arraycopy(targets, 0, both, m, m);
+        System.arraycopy(targets, 0, bothTargets, 0, m);
+        System.arraycopy(sources, 0, bothTargets, m, m);
+        System.arraycopy(weights, 0, bothWeights, 0, m);
+        System.arraycopy(weights, 0, bothWeights, m, m);
+        return fromEdges(n, both, bothTargets, bothWeights);
+    }
+
+    /**
+     * Build a directed graph from an adjacency matrix, where graph[u][v] > 0 is an edge u -> v
+     * of weight graph[u][v], as used by ShortestPath and MaxFlow.
+     */
+    public static CsrGraph fromMatrix(final int[][] graph) {
+        final int n = graph.length;
+        final int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            int degree = 0;
+            for (final int w : graph[u]) {
+                if (w > 0) {
+                    degree++;
+                }
+            }
+            offsets[u + 1] = offsets[u] + degree;
+        }
+        final int[] targets = new int[offsets[n]];
+        final int[] weights = new int[offsets[n]];
+        for (int u = 0; u < n; u++) {
+            int slot = offsets[u];
+            for (int v = 0; v < n; v++) {
+                if (graph[u][v] > 0) {
+                    targets[slot] = v;
+                    weights[slot] = graph[u][v];
+                    slot++;
+                }
+            }
+        }
+        return new CsrGraph(n, offsets, targets, weights);
+    }
+
+    /**
+     * Build the reverse graph, which has an edge v -> u of weight w for every edge u -> v of
+     * weight w, e.g. for searching backward from a destination. The edges of a vertex keep the
+     * order of their sources.
+     * Runtime complexity: O(V + E*log(E)).
+     */
+    public CsrGraph reverse() {
+        final int[] sources = new int[targets.length];
+        range(n).forEach(u -> Arrays.fill(sources, offsets[u], offsets[u + 1], u));
+        return fromEdges(n, targets, sources, weights);
+    }
+
+    private static void checkVertices(final int n, final int[] vertices) {
+        for (final int v : vertices) {
+            if (v < 0 || v >= n) {
+                throw new IllegalArgumentException(
+                        String.format("Expected vertex to be within range [0, %d), but got %d.", n, v));
+            }
+        }
+    }
+
+    private static IntStream range(final int size) {
+        final IntStream stream = IntStream.range(0, size);
+        return size >= PARALLEL_MIN_EDGES ? stream.parallel() : stream;
+    }
+
+    public int vertices() {
+        return n;
+    }
+
+    public int edges() {
+        return targets.length;
+    }
+
+    public int degree(final int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int u = 0; u < n; u++) {
+            sb.append(u).append(':');
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                sb.append(' ').append(targets[i]).append('(').append(weights[i]).append(')');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static void main(final String[] args) {
+        final int[] sources = {2, 0, 1, 0, 2};
+        final int[] targets = {0, 1, 2, 2, 1};
+        final int[] weights = {5, 1, 2, 4, 3};
+        final CsrGraph graph = fromEdges(4, sources, targets, weights);
+        System.out.println("Directed graph:");
+        System.out.print(graph);
+        System.out.println("Expected:\n0: 1(1) 2(4)\n1: 2(2)\n2: 0(5) 1(3)\n3:");
+        System.out.println("Reverse graph:");
+        System.out.print(graph.reverse());
+        System.out.println("Expected:\n0: 2(5)\n1: 0(1) 2(3)\n2: 0(4) 1(2)\n3:");
+
+        final int n = 1_000_000;
+        final int m = 4_000_000;
+        final Random random = new Random(42);
+        final int[] us = new int[m];
+        final int[] vs = new int[m];
+        final int[] ws = new int[m];
+        for (int i = 0; i < m; i++) {
+            us[i] = random.nextInt(n);
+            vs[i] = random.nextInt(n);
+            ws[i] = 1 + random.nextInt(100);
+        }
+        final long start = System.nanoTime();
+        final CsrGraph large = fromEdges(n, us, vs, ws);
+        System.out.printf("built a graph of %d vertices and %d edges in %.1f ms\n",
+                large.vertices(), large.edges(), (System.nanoTime() - start) / 1e6);
+    }
+}
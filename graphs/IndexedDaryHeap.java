@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * IndexedDaryHeap is a min priority queue of int items in [0, capacity) with long keys, which
+ * supports decreaseKey, as needed by Dijkstra's algorithm, without boxing anything.
+ *
+ * The heap is a d-ary tree stored in an array: the children of position i are the positions
+ * d*i + 1, ..., d*i + d, and the parent of position i is (i - 1) / d. Compared to a binary heap,
+ * the tree is log2(d) times shallower, which makes push and decreaseKey, that move an item up,
+ * cheaper, while pop, that compares all d children on every level, gets more expensive. Dijkstra's
+ * algorithm does up to one decreaseKey per edge but only one pop per vertex, so d = 4 is a good
+ * default, and the d children of a position are adjacent in memory.
+ *
+ * The keys are stored next to the items in heap order, so moving an item does not need to look
+ * up its key elsewhere, and position[item] is the position of the item in the heap, or -1 if it
+ * is not in the heap, which makes contains and decreaseKey O(1) to locate.
+ */
+public class IndexedDaryHeap {
+    private static final int DEFAULT_ARITY = 4;
+
+    private final int d;
+    private final int[] items;
+    private final long[] keys;
+    private final int[] position;
+    private int size;
+
+    /**
+     * Create an empty 4-ary heap for items in [0, capacity).
+     */
+    public IndexedDaryHeap(final int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * Create an empty d-ary heap for items in [0, capacity).
+     */
+    public IndexedDaryHeap(final int capacity, final int d) {
+        if (capacity < 0 || d < 2) {
+            throw new IllegalArgumentException(
+                    String.format("Expected non-negative capacity and arity >= 2, but got %d, %d", capacity, d));
+        }
+        this.d = d;
+        this.items = new int[capacity];
+        this.keys = new long[capacity];
+        this.position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public int capacity() {
+        return position.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(final int item) {
+        return position[item] >= 0;
+    }
+
+    /**
+     * @return the key of the given item, which must be in the heap.
+     */
+    public long keyOf(final int item) {
+        return keys[position[item]];
+    }
+
+    /**
+     * @return the smallest key in the heap, which must not be empty.
+     */
+    public long peekKey() {
+        return keys[0];
+    }
+
+    /**
+     * Add an item that is not in the heap yet.
+     * Runtime complexity: O(log_d(N)).
+     */
+    public void push(final int item, final long key) {
+        if (position[item] >= 0) {
+            throw new IllegalArgumentException(String.format("Item %d is already in the heap.", item));
+        }
+        siftUp(size++, item, key);
+    }
+
+    /**
+     * Lower the key of an item that is in the heap, a larger key is ignored.
+     * Runtime complexity: O(log_d(N)).
+     */
+    public void decreaseKey(final int item, final long key) {
+        final int pos = position[item];
+        if (pos < 0) {
+            throw new IllegalArgumentException(String.format("Item %d is not in the heap.", item));
+        }
+        if (key < keys[pos]) {
+            siftUp(pos, item, key);
+        }
+    }
+
+    /**
+     * Add the item, or lower its key if it is already in the heap.
+     * @return true if the item was added or its key lowered.
+     */
+    public boolean pushOrDecrease(final int item, final long key) {
+        final int pos = position[item];
+        if (pos < 0) {
+            siftUp(size++, item, key);
+            return true;
+        }
+        if (key < keys[pos]) {
+            siftUp(pos, item, key);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove the item with the smallest key, the heap must not be empty.
+     * Runtime complexity: O(d * log_d(N)).
+     * @return the removed item.
+     */
+    public int pop() {
+        final int top = items[0];
+        position[top] = -1;
+        size--;
+        if (size > 0) {
+            siftDown(0, items[size], keys[size]);
+        }
+        return top;
+    }
+
+    /**
+     * Remove all items, in O(size()) rather than O(capacity()).
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[items[i]] = -1;
+        }
+        size = 0;
+    }
+
+    // move the hole at pos up until the parent's key is not larger than key, then fill it with item.
+    private void siftUp(int pos, final int item, final long key) {
+        while (pos > 0) {
+            final int parent = (pos - 1) / d;
+            if (keys[parent] <= key) {
+                break;
+            }
+            place(pos, items[parent], keys[parent]);
+            pos = parent;
+        }
+        place(pos, item, key);
+    }
+
+    // move the hole at pos down until no child's key is smaller than key, then fill it with item.
+    private void siftDown(int pos, final int item, final long key) {
+        while (true) {
+            final int first = d * pos + 1;
+            if (first >= size) {
+                break;
+            }
+            final int last = Math.min(first + d, size);
+            int best = first;
+            for (int c = first + 1; c < last; c++) {
+                if (keys[c] < keys[best]) {
+                    best = c;
+                }
+            }
+            if (keys[best] >= key) {
+                break;
+            }
+            place(pos, items[best], keys[best]);
+            pos = best;
+        }
+        place(pos, item, key);
+    }
+
+    private void place(final int pos, final int item, final long key) {
+        items[pos] = item;
+        keys[pos] = key;
+        position[item] = pos;
+    }
+
+    public static void main(final String[] args) {
+        final IndexedDaryHeap heap = new IndexedDaryHeap(10);
+        final long[] initial = {50, 30, 80, 10, 70, 20, 60, 90, 40};
+        for (int i = 0; i < initial.length; i++) {
+            heap.push(i, initial[i]);
+        }
+        heap.decreaseKey(7, 5);
+        heap.decreaseKey(2, 100);
+        System.out.println("push 0..8 with keys [50, 30, 80, 10, 70, 20, 60, 90, 40], decrease 7 to 5, and 2 to 100 (ignored)");
+        final StringBuilder sb = new StringBuilder();
+        while (!heap.isEmpty()) {
+            sb.append(heap.peekKey()).append(':').append(heap.pop()).append(' ');
+        }
+        System.out.println(sb);
+        System.out.println("Expected:\n5:7 10:3 20:5 30:1 40:8 50:0 60:6 70:4 80:2");
+    }
+}
@@ -0,0 +1,170 @@
+import java.util.Arrays;
+
+/**
+ * Landmarks is the ALT (A*, landmarks, triangle inequality) heuristic for ShortestPath.aStar.
+ * The distances d(L, v) and d(v, L) between a few landmark vertices L and every vertex v are
+ * precomputed, and by the triangle inequality
+ *  d(L, t) <= d(L, v) + d(v, t)  and  d(v, L) <= d(v, t) + d(t, L)
+ * so the largest d(L, t) - d(L, v) and d(v, L) - d(t, L) over all landmarks is a lower bound of
+ * the distance d(v, t) to the destination t. The bound is also consistent, so aStar settles every
+ * vertex at most once. A landmark can also prove that t cannot be reached from v, e.g. when v
+ * reaches L but t does not, and then the estimate is Integer.MAX_VALUE.
+ *
+ * The bound is tight for vertices that lie on the way from v to a landmark behind t, so the
+ * landmarks are picked at the edge of the graph, by farthest selection: the next landmark is the
+ * vertex with the largest d(L, v) + d(v, L) to its closest landmark so far.
+ *
+ * The distances are ints in two flat arrays of K * V, Integer.MAX_VALUE for no path, stored by
+ * vertex so the K distances of a vertex are adjacent in memory, i.e. from[v*K + i] = d(L_i, v) and
+ * to[v*K + i] = d(v, L_i). An estimate reads two short runs of each array.
+ */
+public class Landmarks implements ShortestPath.Heuristic {
+    private final int k;
+    private final int[] landmarks;
+    private final int[] from;
+    private final int[] to;
+
+    private Landmarks(final int k, final int[] landmarks, final int[] from, final int[] to) {
+        this.k = k;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Pick k landmarks of the graph and compute their distances.
+     * Runtime complexity: O(K * (V + E) * log(V)), 8 * K * V bytes of memory.
+     * @param graph: CSR representation of the graph
+     * @param reverse: the reverse of graph, see CsrGraph.reverse()
+     * @param k: number of landmarks
+     */
+    public static Landmarks select(final CsrGraph graph, final CsrGraph reverse, final int k) {
+        final int n = graph.vertices();
+        if (k < 1 || k > n || (long) k * n > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Invalid number of landmarks %d for %d vertices", k, n));
+        }
+        final int[] landmarks = new int[k];
+        final int[] from = new int[k * n];
+        final int[] to = new int[k * n];
+        final int[] dist = new int[n];
+        // distance of each vertex to its closest landmark, starting with the distance from vertex 0
+        // so the first landmark is far from it.
+        final long[] closest = new long[n];
+        ShortestPath.distances(graph, 0, dist);
+        for (int v = 0; v < n; v++) {
+            closest[v] = dist[v];
+        }
+        for (int i = 0; i < k; i++) {
+            landmarks[i] = farthest(closest);
+            ShortestPath.distances(graph, landmarks[i], dist);
+            for (int v = 0; v < n; v++) {
+                from[v * k + i] = dist[v];
+            }
+            ShortestPath.distances(reverse, landmarks[i], dist);
+            for (int v = 0; v < n; v++) {
+                to[v * k + i] = dist[v];
+                final int d = from[v * k + i];
+                if (d != Integer.MAX_VALUE && dist[v] != Integer.MAX_VALUE) {
+                    closest[v] = Math.min(closest[v], (long) d + dist[v]);
+                }
+            }
+        }
+        return new Landmarks(k, landmarks, from, to);
+    }
+
+    // the vertex with the largest finite distance, ties go to the smallest vertex.
+    private static int farthest(final long[] closest) {
+        int best = 0;
+        for (int v = 1; v < closest.length; v++) {
+            if (closest[v] != Integer.MAX_VALUE && (closest[best] == Integer.MAX_VALUE || closest[v] > closest[best])) {
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return a copy of the landmark vertices.
+     */
+    public int[] landmarks() {
+        return landmarks.clone();
+    }
+
+    /**
+     * Lower bound of the distance from v to destination.
+     * Runtime complexity: O(K).
+     */
+    @Override
+    public long estimate(final int v, final int destination) {
+        final int vi = v * k;
+        final int ti = destination * k;
+        long best = 0;
+        for (int i = 0; i < k; i++) {
+            final int lv = from[vi + i];
+            final int lt = from[ti + i];
+            if (lv != Integer.MAX_VALUE) {
+                if (lt == Integer.MAX_VALUE) {
+                    // L reaches v but not t.
+                    return Integer.MAX_VALUE;
+                }
+                best = Math.max(best, lt - lv);
+            }
+            final int vl = to[vi + i];
+            final int tl = to[ti + i];
+            if (tl != Integer.MAX_VALUE) {
+                if (vl == Integer.MAX_VALUE) {
+                    // t reaches L but v does not.
+                    return Integer.MAX_VALUE;
+                }
+                best = Math.max(best, vl - tl);
+            }
+        }
+        return best;
+    }
+
+    public static void main(final String[] args) {
+        // a grid of 6x6 vertices, where a step along a row costs 1 and a step along a column costs
+        // 2, so the distance between (r0, c0) and (r1, c1) is |c1 - c0| + 2 * |r1 - r0|.
+        final int side = 6;
+        final int m = 2 * side * (side - 1);
+        final int[] us = new int[m];
+        final int[] vs = new int[m];
+        final int[] ws = new int[m];
+        int e = 0;
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                if (c + 1 < side) {
+                    us[e] = r * side + c;
+                    vs[e] = r * side + c + 1;
+                    ws[e++] = 1;
+                }
+                if (r + 1 < side) {
+                    us[e] = r * side + c;
+                    vs[e] = (r + 1) * side + c;
+                    ws[e++] = 2;
+                }
+            }
+        }
+        final CsrGraph graph = CsrGraph.fromUndirectedEdges(side * side, us, vs, ws);
+        final CsrGraph reverse = graph.reverse();
+        final Landmarks landmarks = select(graph, reverse, 4);
+        System.out.printf("landmarks: %s, expected [35, 22, 30, 26]\n",
+                Arrays.toString(landmarks.landmarks()));
+
+        final int[] parent = new int[side * side];
+        System.out.printf("estimate 14 -> 21: %d, expected 3\n", landmarks.estimate(14, 21));
+        System.out.printf("dijkstra 0 -> 35: %d, expected 15\n", ShortestPath.dijkstra(graph, 0, 35, parent));
+        System.out.printf("bidirectionalDijkstra 0 -> 35: %d, expected 15\n",
+                ShortestPath.bidirectionalDijkstra(graph, reverse, 0, 35, parent));
+        System.out.printf("aStar 0 -> 35: %d, expected 15\n", ShortestPath.aStar(graph, 0, 35, landmarks, parent));
+
+        // the landmarks lead aStar straight to the destination, where dijkstra settles every
+        // vertex that is closer than it.
+        final int dijkstra = ShortestPath.dijkstra(graph, 8, 22, parent);
+        final int dijkstraSettled = ShortestPath.settledVertices();
+        final int aStar = ShortestPath.aStar(graph, 8, 22, landmarks, parent);
+        System.out.printf("8 -> 22: dijkstra %d after settling %d vertices, aStar %d after settling %d,"
+                + " expected 6 after settling 22, and 6 after settling 8\n",
+                dijkstra, dijkstraSettled, aStar, ShortestPath.settledVertices());
+    }
+}
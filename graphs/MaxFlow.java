@@ -48,6 +48,106 @@ public class MaxFlow {
         return maxFlow;
     }
 
+    /**
+     * Uses the Edmonds-Karp version of Ford-Fulkerson's algorithm to calculate the maximum
+     * flow of the graph from source to sink, in O(V + E) memory.
+     * @param graph: CSR graph, the weight of an edge is its capacity.
+     * @param source: source vertex id.
+     * @param sink: sink vertex id.
+     *
+     * The residual graph is kept in CSR form as well: each edge u -> v gets a forward arc u -> v
+     * with the capacity of the edge, and a reverse arc v -> u with capacity 0, placed among the
+     * arcs of v. partner[a] is the reverse of arc a and vice versa, so pushing flow along arc a
+     * is capacity[a] -= flow, capacity[partner[a]] += flow, and the tail of arc a is the head of
+     * its partner.
+     * runtime complexity: O(V*E^2), since bfs always finds a shortest path.
+     */
+    public static int getMaxFlow(final CsrGraph graph, final int source, final int sink) {
+        final int n = graph.vertices();
+        final int m = graph.edges();
+        final int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+                offsets[u + 1]++;
+                offsets[graph.targets[i] + 1]++;
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+        final int[] next = Arrays.copyOf(offsets, n);
+        final int[] heads = new int[2 * m];
+        final int[] capacity = new int[2 * m];
+        final int[] partner = new int[2 * m];
+        for (int u = 0; u < n; u++) {
+            for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+                final int v = graph.targets[i];
+                final int forward = next[u]++;
+                final int reverse = next[v]++;
+                heads[forward] = v;
+                capacity[forward] = graph.weights[i];
+                heads[reverse] = u;
+                partner[forward] = reverse;
+                partner[reverse] = forward;
+            }
+        }
+
+        int maxFlow = 0;
+        final int[] parentArc = new int[n];
+        final int[] queue = new int[n];
+        while (bfs(offsets, heads, capacity, source, sink, parentArc, queue)) {
+            int minFlow = Integer.MAX_VALUE;
+            for (int v = sink; v != source; v = heads[partner[parentArc[v]]]) {
+                minFlow = Math.min(minFlow, capacity[parentArc[v]]);
+            }
+            for (int v = sink; v != source; v = heads[partner[parentArc[v]]]) {
+                final int arc = parentArc[v];
+                capacity[arc] -= minFlow;
+                capacity[partner[arc]] += minFlow;
+            }
+            maxFlow += minFlow;
+        }
+        return maxFlow;
+    }
+
+    /**
+     * Breadth first search over the arcs with remaining capacity of a CSR residual graph.
+     * @param parentArc: parentArc[v] is set to the arc through which v was reached, -1 if v
+     * was not reached.
+     * @param queue: buffer of at least n vertices
+     * @return true if there's a path from source to sink.
+     *
+     * runtime complexity: O(V + E).
+     */
+    private static boolean bfs(
+            final int[] offsets,
+            final int[] heads,
+            final int[] capacity,
+            final int source,
+            final int sink,
+            final int[] parentArc,
+            final int[] queue
+    ) {
+        Arrays.fill(parentArc, -1);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            final int p = queue[head++];
+            for (int a = offsets[p]; a < offsets[p + 1]; a++) {
+                final int v = heads[a];
+                if (capacity[a] > 0 && v != source && parentArc[v] == -1) {
+                    parentArc[v] = a;
+                    if (v == sink) {
+                        return true;
+                    }
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Do breadth first search on the given graph startting from source, 
      * and build up a path from source to sink, return true if such a path
@@ -100,6 +200,7 @@ public class MaxFlow {
         };
         final int maxFlow = getMaxFlow(graph, 0, 5);
         System.out.printf("Maximum flow is %d\n", maxFlow);
+        System.out.printf("Maximum flow on CsrGraph is %d, expected 23\n", getMaxFlow(CsrGraph.fromMatrix(graph), 0, 5));
     }
 }
        
@@ -107,6 +107,75 @@ public class MinSpanTree {
         return result.toArray(new Edge[0]);
     }
 
+    /**
+     * Kruskal's algorithm on an undirected graph in CSR form, which stores every edge u <-> v
+     * both as u -> v and v -> u, so only the copies with u < v are used.
+     *
+     * Each edge is packed into a long as (weight << 32 | slot), so sorting the keys sorts the
+     * edges by weight without any Edge objects, and the union find is a pair of int arrays,
+     * with union by size and path halving.
+     * @return the edges of the minimum spanning forest.
+     */
+    static Edge[] minSpanTreeViaKruskal(final CsrGraph graph) {
+        final int n = graph.vertices();
+        final int[] tails = new int[graph.edges()];
+        int m = 0;
+        for (int u = 0; u < n; u++) {
+            for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+                tails[i] = u;
+                if (u < graph.targets[i]) {
+                    m++;
+                }
+            }
+        }
+        final long[] keys = new long[m];
+        m = 0;
+        for (int i = 0; i < tails.length; i++) {
+            if (tails[i] < graph.targets[i]) {
+                keys[m++] = (long) graph.weights[i] << 32 | i;
+            }
+        }
+        Arrays.parallelSort(keys);
+
+        final int[] root = new int[n];
+        final int[] size = new int[n];
+        for (int v = 0; v < n; v++) {
+            root[v] = v;
+            size[v] = 1;
+        }
+        final List<Edge> result = new ArrayList<Edge>();
+        for (final long key : keys) {
+            final int slot = (int) key;
+            final int v1 = tails[slot];
+            final int v2 = graph.targets[slot];
+            int c1 = find(root, v1);
+            int c2 = find(root, v2);
+            if (c1 != c2) {
+                if (size[c1] < size[c2]) {
+                    final int t = c1;
+                    c1 = c2;
+                    c2 = t;
+                }
+                root[c2] = c1;
+                size[c1] += size[c2];
+                result.add(new Edge(v1, v2, graph.weights[slot]));
+                if (result.size() == n - 1) {
+                    break;
+                }
+            }
+        }
+        return result.toArray(new Edge[0]);
+    }
+
+    private static int find(final int[] root, int v) {
+        while (root[v] != v) {
+            // path halving, point v to its grandparent.
+            root[v] = root[root[v]];
+            v = root[v];
+        }
+        return v;
+    }
+
     public static void main(final String[] args) {
         final Edge[] graph = {
             new Edge(5, 6, 2),
@@ -121,6 +190,17 @@ public class MinSpanTree {
 
         final Edge[] spanningTree = minSpanTreeViaKruskal(graph);
         System.out.println(Arrays.toString(spanningTree));
+
+        final int[] sources = new int[graph.length];
+        final int[] targets = new int[graph.length];
+        final int[] weights = new int[graph.length];
+        for (int i = 0; i < graph.length; i++) {
+            sources[i] = graph[i].vertex1;
+            targets[i] = graph[i].vertex2;
+            weights[i] = graph[i].weight;
+        }
+        final Edge[] csrTree = minSpanTreeViaKruskal(CsrGraph.fromUndirectedEdges(7, sources, targets, weights));
+        System.out.printf("On CsrGraph: %s\n", Arrays.toString(csrTree));
     }
 }
 
@@ -1,52 +1,329 @@
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Queue;
 
+/**
+ * Dijkstra's algorithm finds the shortest paths from a source vertex in a graph with non-negative
+ * weights. Vertices are settled in increasing order of their distance: the unsettled vertex with
+ * the smallest tentative distance is final, since any other path to it would have to leave the
+ * settled vertices through a vertex that is at least as far away. Settling a vertex relaxes its
+ * edges, i.e. dist[v] = min(dist[v], dist[p] + w(p, v)) for every edge p -> v.
+ *
+ * The unsettled vertices are kept in an IndexedDaryHeap keyed by their tentative distance, and a
+ * relaxation that lowers dist[v] lowers the key of v in place, so every vertex is in the heap at
+ * most once. The search stops as soon as the destination is settled.
+ *
+ * The arrays of the search live in a Workspace per thread, which is reused by later searches of
+ * the same thread. Every vertex whose distance is set is recorded, and only those are reset when
+ * the next search starts, so a short search on a large graph does not pay O(V) for clearing.
+ * For the same reason, parent is only written for the vertices reached by the search.
+ */
 public class ShortestPath {
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+    private static final ThreadLocal<Workspace> BACKWARD_WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * A lower bound of the distance from a vertex to the destination, used by aStar to search
+     * towards the destination first. It must never overestimate the distance, e.g. Landmarks.
+     */
+    public interface Heuristic {
+        long estimate(int v, int destination);
+    }
+
+    /**
+     * The state of a search: dist[v] is Long.MAX_VALUE for every vertex that is not in
+     * touched[0...touchedCount), and settled[v] is false.
+     */
+    static final class Workspace {
+        long[] dist = new long[0];
+        boolean[] settled = new boolean[0];
+        int[] touched = new int[0];
+        int touchedCount;
+        IndexedDaryHeap heap = new IndexedDaryHeap(0);
+        // the parents of the backward search of bidirectionalDijkstra.
+        int[] parent = new int[0];
+        int settledCount;
+
+        /**
+         * Prepare for a search on a graph of n vertices.
+         */
+        void reset(final int n) {
+            if (dist.length < n) {
+                dist = new long[n];
+                Arrays.fill(dist, Long.MAX_VALUE);
+                settled = new boolean[n];
+                touched = new int[n];
+                heap = new IndexedDaryHeap(n);
+                parent = new int[n];
+            } else {
+                for (int i = 0; i < touchedCount; i++) {
+                    final int v = touched[i];
+                    dist[v] = Long.MAX_VALUE;
+                    settled[v] = false;
+                }
+                heap.clear();
+            }
+            touchedCount = 0;
+            settledCount = 0;
+        }
+
+        /**
+         * Lower dist[v] to newDist if that is shorter.
+         * @return true if dist[v] was lowered.
+         */
+        boolean relax(final int v, final long newDist) {
+            if (newDist >= dist[v]) {
+                return false;
+            }
+            update(v, newDist, newDist);
+            return true;
+        }
+
+        /**
+         * Set dist[v] to newDist, which must be shorter, and (re)insert v into the heap with key.
+         */
+        void update(final int v, final long newDist, final long key) {
+            if (dist[v] == Long.MAX_VALUE) {
+                touched[touchedCount++] = v;
+            }
+            dist[v] = newDist;
+            heap.pushOrDecrease(v, key);
+        }
+
+        static int toInt(final long dist) {
+            return dist > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) dist;
+        }
+    }
+
     /**
      * Use Dijkstra's algorithm to find the shortest path between source and destination.
      * @param graph: adjency matrix representation of the graph
      * @param source: source vertex
      * @param destination: destination vertext
      * @param parent: parent of each vertex in the shortest path
-     * @return length of the shortest path from source to destination
+     * @return length of the shortest path from source to destination, Integer.MAX_VALUE if there
+     * is no path.
      *
-     * Runtime complexity: O(V*E)
+     * Runtime complexity: O(V^2 + E*log(V)), each settled vertex scans its row of the matrix.
      */
     public static int dijkstra(final int[][] graph, final int source, final int destination, final int[] parent) {
         final int n = graph.length;
-        final boolean[] visited = new boolean[n];
-        final int[] dist = new int[n];
-        Arrays.fill(dist, Integer.MAX_VALUE);
-        final Queue<Integer> queue = new LinkedList<>();
-
-        dist[source] = 0;
-        queue.add(source);
-        visited[source] = true;
+        final Workspace ws = WORKSPACE.get();
+        ws.reset(n);
+        ws.relax(source, 0);
         parent[source] = -1;
 
-        while (!queue.isEmpty()) {
-            final int p = queue.poll();
-            final int curDist = dist[p];
-
+        while (!ws.heap.isEmpty()) {
+            final int p = ws.heap.pop();
+            ws.settled[p] = true;
+            ws.settledCount++;
+            if (p == destination) {
+                break;
+            }
+            final long curDist = ws.dist[p];
+            final int[] row = graph[p];
             for (int v = 0; v < n; v++) {
-                if (graph[p][v] > 0) {
-                    // newDist is the distance from source to v via vertext p
-                    final int newDist = graph[p][v] + curDist;
-                    if (newDist < dist[v]) {
-                        // current path is shorter than the old path, replace it.
-                        dist[v] = newDist;
-                        parent[v] = p;
-                    }
-                    // each vertex should go into the queue only once
-                    if (!visited[v]) {
-                        queue.add(v);
-                        visited[v] = true;
-                    }
+                // relax with the distance from source to v via vertext p
+                if (row[v] > 0 && !ws.settled[v] && ws.relax(v, curDist + row[v])) {
+                    parent[v] = p;
+                }
+            }
+        }
+        return Workspace.toInt(ws.dist[destination]);
+    }
+
+    /**
+     * Find the shortest path between source and destination of a graph with non-negative weights.
+     * @param graph: CSR representation of the graph
+     * @param source: source vertex
+     * @param destination: destination vertext
+     * @param parent: parent of each vertex in the shortest path
+     * @return length of the shortest path from source to destination, Integer.MAX_VALUE if there
+     * is no path.
+     *
+     * Runtime complexity: O((V + E) * log(V)), O(V + E) memory.
+     */
+    public static int dijkstra(final CsrGraph graph, final int source, final int destination, final int[] parent) {
+        return Workspace.toInt(search(graph, source, destination, parent).dist[destination]);
+    }
+
+    /**
+     * Compute the distances from source to every vertex, Integer.MAX_VALUE for the vertices that
+     * cannot be reached.
+     * Runtime complexity: O((V + E) * log(V)).
+     */
+    static void distances(final CsrGraph graph, final int source, final int[] dist) {
+        final Workspace ws = search(graph, source, -1, new int[graph.vertices()]);
+        for (int v = 0; v < dist.length; v++) {
+            dist[v] = Workspace.toInt(ws.dist[v]);
+        }
+    }
+
+    // Dijkstra's algorithm until destination is settled, or over the whole graph for -1.
+    private static Workspace search(final CsrGraph graph, final int source, final int destination, final int[] parent) {
+        final Workspace ws = WORKSPACE.get();
+        ws.reset(graph.vertices());
+        ws.relax(source, 0);
+        parent[source] = -1;
+
+        final int[] offsets = graph.offsets;
+        final int[] targets = graph.targets;
+        final int[] weights = graph.weights;
+        while (!ws.heap.isEmpty()) {
+            final int p = ws.heap.pop();
+            ws.settled[p] = true;
+            ws.settledCount++;
+            if (p == destination) {
+                break;
+            }
+            final long curDist = ws.dist[p];
+            for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                final int v = targets[i];
+                if (!ws.settled[v] && ws.relax(v, curDist + weights[i])) {
+                    parent[v] = p;
                 }
             }
         }
-        return dist[destination];       
+        return ws;
+    }
+
+    /**
+     * Find the shortest path between source and destination with two simultaneous searches, one
+     * forward from source on graph, and one backward from destination on the reverse graph. The
+     * search with the smaller distance at the top of its heap settles its next vertex, and every
+     * edge p -> v that connects a vertex settled in one search to a vertex reached by the other
+     * gives a path of length distF(p) + w + distB(v). The searches stop once the tops of the two
+     * heaps add up to at least the shortest such path, because any shorter path would have to
+     * contain a vertex closer than the top of one of the heaps. Each search covers roughly a ball
+     * of half the radius, which is a fraction of the vertices a single search settles.
+     * @param graph: CSR representation of the graph
+     * @param reverse: the reverse of graph, see CsrGraph.reverse()
+     * @param source: source vertex
+     * @param destination: destination vertext
+     * @param parent: parent of each vertex in the shortest path
+     * @return length of the shortest path from source to destination, Integer.MAX_VALUE if there
+     * is no path.
+     *
+     * Runtime complexity: O((V + E) * log(V)), in practice far less than dijkstra.
+     */
+    public static int bidirectionalDijkstra(
+            final CsrGraph graph,
+            final CsrGraph reverse,
+            final int source,
+            final int destination,
+            final int[] parent
+    ) {
+        if (reverse.vertices() != graph.vertices() || reverse.edges() != graph.edges()) {
+            throw new IllegalArgumentException(String.format(
+                        "Expected the reverse graph to have %d vertices and %d edges, but got %d and %d.",
+                        graph.vertices(), graph.edges(), reverse.vertices(), reverse.edges()));
+        }
+        final Workspace forward = WORKSPACE.get();
+        final Workspace backward = BACKWARD_WORKSPACE.get();
+        forward.reset(graph.vertices());
+        backward.reset(graph.vertices());
+        forward.relax(source, 0);
+        backward.relax(destination, 0);
+        parent[source] = -1;
+        if (source == destination) {
+            return 0;
+        }
+
+        // the edge meetFrom -> meetTo joins the two halves of the shortest path found so far.
+        long best = Long.MAX_VALUE;
+        int meetFrom = -1;
+        int meetTo = -1;
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()
+                && forward.heap.peekKey() + backward.heap.peekKey() < best) {
+            final boolean isForward = forward.heap.peekKey() <= backward.heap.peekKey();
+            final Workspace ws = isForward ? forward : backward;
+            final Workspace other = isForward ? backward : forward;
+            final CsrGraph g = isForward ? graph : reverse;
+            final int[] wsParent = isForward ? parent : backward.parent;
+            final int p = ws.heap.pop();
+            ws.settled[p] = true;
+            ws.settledCount++;
+            final long curDist = ws.dist[p];
+            for (int i = g.offsets[p]; i < g.offsets[p + 1]; i++) {
+                final int v = g.targets[i];
+                final long newDist = curDist + g.weights[i];
+                if (!ws.settled[v] && ws.relax(v, newDist)) {
+                    wsParent[v] = p;
+                }
+                if (other.dist[v] != Long.MAX_VALUE && newDist + other.dist[v] < best) {
+                    best = newDist + other.dist[v];
+                    meetFrom = isForward ? p : v;
+                    meetTo = isForward ? v : p;
+                }
+            }
+        }
+        // settledVertices() reports both searches.
+        forward.settledCount += backward.settledCount;
+        if (best == Long.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        parent[meetTo] = meetFrom;
+        for (int v = meetTo; v != destination; v = backward.parent[v]) {
+            parent[backward.parent[v]] = v;
+        }
+        return Workspace.toInt(best);
+    }
+
+    /**
+     * Find the shortest path between source and destination with A*, i.e. Dijkstra's algorithm
+     * that settles the vertex with the smallest dist[v] + heuristic.estimate(v, destination)
+     * instead of the smallest dist[v], so vertices that lead away from the destination are put
+     * off. With a consistent heuristic every vertex is settled at most once, like in Dijkstra's
+     * algorithm; with one that is only admissible, a vertex whose distance decreases after it has
+     * been settled goes back into the heap, so the path is still the shortest.
+     * @param graph: CSR representation of the graph
+     * @param source: source vertex
+     * @param destination: destination vertext
+     * @param heuristic: lower bound of the distance to destination
+     * @param parent: parent of each vertex in the shortest path
+     * @return length of the shortest path from source to destination, Integer.MAX_VALUE if there
+     * is no path.
+     *
+     * Runtime complexity: O((V + E) * log(V)) with a consistent heuristic.
+     */
+    public static int aStar(
+            final CsrGraph graph,
+            final int source,
+            final int destination,
+            final Heuristic heuristic,
+            final int[] parent
+    ) {
+        final Workspace ws = WORKSPACE.get();
+        ws.reset(graph.vertices());
+        ws.update(source, 0, heuristic.estimate(source, destination));
+        parent[source] = -1;
+
+        final int[] offsets = graph.offsets;
+        final int[] targets = graph.targets;
+        final int[] weights = graph.weights;
+        while (!ws.heap.isEmpty()) {
+            final int p = ws.heap.pop();
+            ws.settledCount++;
+            if (p == destination) {
+                break;
+            }
+            final long curDist = ws.dist[p];
+            for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                final int v = targets[i];
+                final long newDist = curDist + weights[i];
+                if (newDist < ws.dist[v]) {
+                    ws.update(v, newDist, newDist + heuristic.estimate(v, destination));
+                    parent[v] = p;
+                }
+            }
+        }
+        return Workspace.toInt(ws.dist[destination]);
+    }
+
+    /**
+     * @return number of vertices settled by the last search of the calling thread, by both
+     * searches of bidirectionalDijkstra, and counting a vertex settled again by aStar again.
+     */
+    public static int settledVertices() {
+        return WORKSPACE.get().settledCount;
     }
 
     /**
@@ -78,6 +355,30 @@ public class ShortestPath {
         System.out.println(shortestPathLen);
         printShortestPath(parent, 4);
         System.out.println();
+
+        final int[] csrParent = new int[graph.length];
+        System.out.printf("On CsrGraph: %d, expected 21\n", dijkstra(CsrGraph.fromMatrix(graph), 0, 4, csrParent));
+        printShortestPath(csrParent, 4);
+        System.out.println();
+        final CsrGraph csr = CsrGraph.fromMatrix(graph);
+        System.out.printf("Bidirectional: %d, expected 21\n", bidirectionalDijkstra(csr, csr.reverse(), 0, 4, csrParent));
+        printShortestPath(csrParent, 4);
+        System.out.println();
+        System.out.printf("A* with no heuristic: %d, expected 21\n", aStar(csr, 0, 4, (v, t) -> 0, csrParent));
+
+        // 0 -> 1 is the first edge found but not the shortest way to 1, which the previous
+        // version of dijkstra, that queued every vertex only once, got wrong.
+        final int[][] detour = new int[][]{
+            { 0, 10,  1,  0},
+            { 0,  0,  0,  1},
+            { 0,  1,  0,  0},
+            { 0,  0,  0,  0}
+        };
+        System.out.printf("Shortest path 0 -> 3 with a detour: %d, expected 3\n", dijkstra(detour, 0, 3, parent));
+
+        // the search stops as soon as the destination is settled.
+        final int near = dijkstra(csr, 0, 1, csrParent);
+        System.out.printf("Shortest path 0 -> 1: %d after settling %d vertices, expected 4 after settling 2\n",
+                near, settledVertices());
     }
 }
-
@@ -0,0 +1,138 @@
+package graphs;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Point to point queries on a road-like grid of side * side vertices with random travel times of
+ * 10 to 29 on the streets: dijkstra, bidirectionalDijkstra and aStar with Landmarks, and the
+ * time to select the landmarks.
+ *
+ * The number of settled vertices does not depend on the timing, so the setup counts them once per
+ * query and prints the average of each algorithm, and checks that all three find the same
+ * distances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ShortestPathBenchmark {
+    private static final long SEED = 42;
+    private static final int QUERIES = 64;
+
+    @Param({"100", "1000"})
+    int side;
+
+    @Param({"16"})
+    int k;
+
+    CsrGraph graph;
+    CsrGraph reverse;
+    Landmarks landmarks;
+    int[] sources;
+    int[] destinations;
+    int[] parent;
+    int cursor;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(SEED);
+        graph = grid(side, random);
+        reverse = graph.reverse();
+        landmarks = Landmarks.select(graph, reverse, k);
+        final int n = side * side;
+        sources = new int[QUERIES];
+        destinations = new int[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            sources[q] = random.nextInt(n);
+            destinations[q] = random.nextInt(n);
+        }
+        parent = new int[n];
+
+        long dijkstraSettled = 0;
+        long bidirectionalSettled = 0;
+        long aStarSettled = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            final int s = sources[q];
+            final int t = destinations[q];
+            final int expected = ShortestPath.dijkstra(graph, s, t, parent);
+            dijkstraSettled += ShortestPath.settledVertices();
+            final int bidirectional = ShortestPath.bidirectionalDijkstra(graph, reverse, s, t, parent);
+            bidirectionalSettled += ShortestPath.settledVertices();
+            final int aStar = ShortestPath.aStar(graph, s, t, landmarks, parent);
+            aStarSettled += ShortestPath.settledVertices();
+            if (bidirectional != expected || aStar != expected) {
+                throw new IllegalStateException(String.format(
+                            "%d -> %d: dijkstra %d, bidirectionalDijkstra %d, aStar %d",
+                            s, t, expected, bidirectional, aStar));
+            }
+        }
+        System.out.printf("%nsettled vertices per query on a %dx%d grid: dijkstra %d, bidirectionalDijkstra %d,"
+                + " aStar with %d landmarks %d%n",
+                side, side, dijkstraSettled / QUERIES, bidirectionalSettled / QUERIES, k, aStarSettled / QUERIES);
+    }
+
+    // a grid with the edges of every vertex to its right and lower neighbours, in both directions.
+    private static CsrGraph grid(final int side, final Random random) {
+        final int m = 2 * side * (side - 1);
+        final int[] us = new int[m];
+        final int[] vs = new int[m];
+        final int[] ws = new int[m];
+        int e = 0;
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                if (c + 1 < side) {
+                    us[e] = r * side + c;
+                    vs[e] = r * side + c + 1;
+                    ws[e++] = 10 + random.nextInt(20);
+                }
+                if (r + 1 < side) {
+                    us[e] = r * side + c;
+                    vs[e] = (r + 1) * side + c;
+                    ws[e++] = 10 + random.nextInt(20);
+                }
+            }
+        }
+        return CsrGraph.fromUndirectedEdges(side * side, us, vs, ws);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public Landmarks select() {
+        return Landmarks.select(graph, reverse, k);
+    }
+
+    @Benchmark
+    public int dijkstra() {
+        final int q = cursor++ & (QUERIES - 1);
+        return ShortestPath.dijkstra(graph, sources[q], destinations[q], parent);
+    }
+
+    @Benchmark
+    public int bidirectionalDijkstra() {
+        final int q = cursor++ & (QUERIES - 1);
+        return ShortestPath.bidirectionalDijkstra(graph, reverse, sources[q], destinations[q], parent);
+    }
+
+    @Benchmark
+    public int aStar() {
+        final int q = cursor++ & (QUERIES - 1);
+        return ShortestPath.aStar(graph, sources[q], destinations[q], landmarks, parent);
+    }
+}
@@ -0,0 +1,238 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * AdaptiveRangeQuery is a MutableRangeQuery that picks the engine answering the queries from the
+ * properties of the query function and from the observed mix of queries and updates, and switches
+ * to another engine when the workload changes.
+ *
+ * There are two kinds of engines:
+ * (1) static engines answer a query in O(1) but have to be rebuilt after an update:
+ *     PrefixSumArray for SUM, and SparseTable for idempotent functions such as MIN, MAX and GCD.
+ *     Other functions use a SparseTable as well, which answers them in O(log(N)).
+ * (2) dynamic engines answer both queries and updates in O(log(N)):
+ *     BinaryIndexedTree for SUM and IntSegmentTree for everything else.
+ *
+ * A copy of the array is kept up to date on every set, so a static engine is not rebuilt on every
+ * update, but only once by the first query after one or more updates, and any engine can be built
+ * from the copy at any time. The operations are counted over epochs of max(N, MIN_EPOCH_LENGTH)
+ * operations, and at the end of each epoch the cost of the epoch is estimated for both kinds:
+ *  static cost  = queries + rebuilds * (cost of a rebuild)
+ *  dynamic cost = (queries + updates) * log2(N)
+ * where rebuilds is the number of queries that followed an update, i.e. the rebuilds a static
+ * engine needs, whichever engine actually ran the epoch, and a rebuild costs N for PrefixSumArray
+ * and N * log2(N) for SparseTable. The engine is migrated when the other kind would have cost
+ * less than 1 / SWITCH_FACTOR of the current one, so that a workload close to the threshold does
+ * not make it migrate back and forth. A static engine also ends its epoch early once its rebuilds
+ * alone cost SWITCH_FACTOR times a whole epoch of the dynamic engine, so a switch to a write heavy
+ * workload only pays for a few rebuilds. A migration builds the new engine from the copy of the
+ * array, which is paid back by the savings of a single epoch.
+ */
+public class AdaptiveRangeQuery implements MutableRangeQuery {
+    private static final int MIN_EPOCH_LENGTH = 1 << 10;
+    private static final int SWITCH_FACTOR = 2;
+
+    private final int[] values;
+    private final int zero;
+    private final IntBinaryOperator func;
+    private final boolean idempotent;
+    // the built-in operator, or null for a custom function.
+    private final SparseTable.Operator operator;
+    private final int epochLength;
+    private final int log2n;
+    private final long rebuildCost;
+
+    private RangeQuery engine;
+    private boolean dynamic;
+    // true when the static engine is out of date.
+    private boolean stale;
+    private boolean updatedSinceQuery;
+    private int queries;
+    private int updates;
+    private int rebuilds;
+    private int migrations;
+
+    private AdaptiveRangeQuery(
+            final int[] array,
+            final int zero,
+            final IntBinaryOperator func,
+            final boolean idempotent,
+            final SparseTable.Operator operator
+    ) {
+        if (array == null || array.length == 0) {
+            throw new IllegalArgumentException("Argument cannot be empty array.");
+        }
+        this.values = array.clone();
+        this.zero = zero;
+        this.func = func;
+        this.idempotent = idempotent;
+        this.operator = operator;
+        this.epochLength = Math.max(MIN_EPOCH_LENGTH, values.length);
+        this.log2n = Math.max(1, 32 - Integer.numberOfLeadingZeros(values.length - 1));
+        this.rebuildCost = operator == SparseTable.Operator.SUM ? values.length : (long) values.length * log2n;
+        // start with a static engine, most arrays are queried far more often than updated.
+        this.engine = buildStatic();
+    }
+
+    /**
+     * Create a range query over a copy of the array for one of the built-in operators.
+     */
+    public static AdaptiveRangeQuery create(final int[] array, final SparseTable.Operator op) {
+        return new AdaptiveRangeQuery(array, op.zero(), op, op.isIdempotent(), op);
+    }
+
+    /**
+     * Create a range query over a copy of the array.
+     * @param zero: the value that satisifies func(x, zero) = func(zero, x) = x.
+     * @param func: the query function, which must be associative
+     * @param idempotent: true if func(x, x) = x
+     */
+    public static AdaptiveRangeQuery create(
+            final int[] array,
+            final int zero,
+            final IntBinaryOperator func,
+            final boolean idempotent
+    ) {
+        return new AdaptiveRangeQuery(array, zero, func, idempotent, null);
+    }
+
+    private RangeQuery buildStatic() {
+        if (operator == SparseTable.Operator.SUM) {
+            return new PrefixSumArray(values);
+        }
+        if (operator != null) {
+            return new SparseTable(values, operator);
+        }
+        return new SparseTable(values, zero, func, idempotent);
+    }
+
+    private MutableRangeQuery buildDynamic() {
+        if (operator == SparseTable.Operator.SUM) {
+            return new BinaryIndexedTree(values);
+        }
+        return new IntSegmentTree(values, zero, func);
+    }
+
+    @Override
+    public int query(final int left, final int right) {
+        if (updatedSinceQuery) {
+            updatedSinceQuery = false;
+            rebuilds++;
+        }
+        if (stale) {
+            engine = buildStatic();
+            stale = false;
+        }
+        final int result = engine.query(left, right);
+        queries++;
+        endOfOperation();
+        return result;
+    }
+
+    @Override
+    public void set(final int idx, final int val) {
+        if (idx < 0 || idx >= values.length) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Expected index to be within range [0, %d), but got %d.", values.length, idx));
+        }
+        values[idx] = val;
+        if (dynamic) {
+            ((MutableRangeQuery) engine).set(idx, val);
+        } else {
+            stale = true;
+        }
+        updatedSinceQuery = true;
+        updates++;
+        endOfOperation();
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return true if the queries are currently answered by a dynamic engine.
+     */
+    public boolean isDynamic() {
+        return dynamic;
+    }
+
+    /**
+     * @return number of times the engine has been replaced by the other kind.
+     */
+    public int migrations() {
+        return migrations;
+    }
+
+    private void endOfOperation() {
+        final long staticCost = queries + rebuilds * rebuildCost;
+        final boolean overBudget = !dynamic && staticCost > (long) SWITCH_FACTOR * epochLength * log2n;
+        if (queries + updates < epochLength && !overBudget) {
+            return;
+        }
+        final long dynamicCost = (long) (queries + updates) * log2n;
+        if (dynamic && staticCost * SWITCH_FACTOR < dynamicCost) {
+            dynamic = false;
+            engine = buildStatic();
+            stale = false;
+            migrations++;
+        } else if (!dynamic && dynamicCost * SWITCH_FACTOR < staticCost) {
+            dynamic = true;
+            engine = buildDynamic();
+            stale = false;
+            migrations++;
+        }
+        queries = 0;
+        updates = 0;
+        rebuilds = 0;
+    }
+
+    public static void main(final String[] args) {
+        //                    0, 1, 2, 3, 4, 5, 6, 7, 8
+        final int[] array = { 1, 3, 4, 8, 6, 1, 4, 2, 3};
+        final AdaptiveRangeQuery sum = create(array, SparseTable.Operator.SUM);
+        final AdaptiveRangeQuery min = create(array, SparseTable.Operator.MIN);
+        System.out.printf("Testing AdaptiveRangeQuery against array: %s\n", Arrays.toString(array));
+        System.out.printf("sum(2, 5) = %d, expected 19\n", sum.query(2, 5));
+        System.out.printf("min(2, 5) = %d, expected 1\n", min.query(2, 5));
+        System.out.println("set array[5] = 10");
+        sum.set(5, 10);
+        min.set(5, 10);
+        System.out.printf("sum(2, 5) = %d, expected 28\n", sum.query(2, 5));
+        System.out.printf("min(2, 5) = %d, expected 4\n", min.query(2, 5));
+
+        final int n = 1 << 16;
+        final int ops = 1 << 20;
+        final Random random = new Random(42);
+        final int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextInt(1000);
+        }
+        final AdaptiveRangeQuery adaptive = create(values, SparseTable.Operator.MIN);
+        final IntSegmentTree reference = IntSegmentTree.min(values);
+        // read only, then alternating reads and writes, then read only again.
+        final int[] writeEvery = {0, 2, 0};
+        for (final int every : writeEvery) {
+            boolean same = true;
+            final long start = System.nanoTime();
+            for (int i = 0; i < ops; i++) {
+                if (every > 0 && i % every == 0) {
+                    final int idx = random.nextInt(n);
+                    final int val = random.nextInt(1000);
+                    adaptive.set(idx, val);
+                    reference.set(idx, val);
+                } else {
+                    final int a = random.nextInt(n);
+                    final int b = random.nextInt(n);
+                    same &= adaptive.query(Math.min(a, b), Math.max(a, b)) == reference.query(Math.min(a, b), Math.max(a, b));
+                }
+            }
+            System.out.printf("%s: %.1f ms, dynamic = %b, migrations = %d, %s\n",
+                    every == 0 ? "read only" : "1 write per " + every + " ops",
+                    (System.nanoTime() - start) / 1e6, adaptive.isDynamic(), adaptive.migrations(),
+                    same ? "same answers as IntSegmentTree" : "DIFFERENT ANSWERS");
+        }
+    }
+}
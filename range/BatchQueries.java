@@ -0,0 +1,55 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * BatchQueries answers a batch of range queries, i.e. out[i] = query(lefts[i], rights[i]), for
+ * the RangeQuery implementations that are safe to query from several threads at once, namely
+ * SegmentTree and SparseTable.
+ *
+ * The batch is split into chunks of BATCH_GRAIN queries that are answered on the ForkJoin common
+ * pool, each chunk in a plain loop. Small batches, or a pool of a single thread, are answered in
+ * one plain loop on the calling thread, since splitting only adds overhead there. Either way
+ * nothing is allocated per query, and the queries are answered in their given order: sorting
+ * them by left end was measured to be slower than the plain loop, because the sort cost more than
+ * the cache misses it saved.
+ */
+final class BatchQueries {
+    private static final int BATCH_GRAIN = 1 << 13;
+
+    private BatchQueries() {
+    }
+
+    /**
+     * @param lefts: starting indices (inclusive)
+     * @param rights: ending indices (inclusive)
+     * @param out: buffer receiving the results, must hold at least lefts.length entries
+     */
+    static void queryAll(final RangeQuery rq, final int[] lefts, final int[] rights, final int[] out) {
+        if (lefts.length != rights.length || out.length < lefts.length) {
+            throw new IllegalArgumentException(
+                    String.format("Mismatching batch sizes: %d lefts, %d rights, %d outputs.",
+                        lefts.length, rights.length, out.length));
+        }
+        final int q = lefts.length;
+        if (q <= BATCH_GRAIN || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            queryRange(rq, lefts, rights, out, 0, q);
+            return;
+        }
+        final int chunks = (q + BATCH_GRAIN - 1) / BATCH_GRAIN;
+        IntStream.range(0, chunks).parallel().forEach(c ->
+                queryRange(rq, lefts, rights, out, c * BATCH_GRAIN, Math.min(q, (c + 1) * BATCH_GRAIN)));
+    }
+
+    private static void queryRange(
+            final RangeQuery rq,
+            final int[] lefts,
+            final int[] rights,
+            final int[] out,
+            final int from,
+            final int to
+    ) {
+        for (int i = from; i < to; i++) {
+            out[i] = rq.query(lefts[i], rights[i]);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * BinaryIndexedMatrix is the 2D version of BinaryIndexedTree, i.e. a mutable PrefixSumMatrix:
+ * (1) add delta to a cell in O(log(N) * log(M))
+ * (2) query the sum of a rectangle (r0, c0) - (r1, c1) in O(log(N) * log(M))
+ * where the matrix has N rows and M columns.
+ *
+ * Each row index selects a range of rows in the same way as BinaryIndexedTree, and each column
+ * index selects a range of columns within those rows, i.e.
+ *  tree[i][j] = sum of the cells in rows (i - p(i), i] and columns (j - p(j), j]
+ *  where p(k) = k & -k, and the indices are 1-based.
+ * So sum(0, 0, r, c) is the sum of tree[i][j] over the O(log(N)) values of i visited by
+ * BinaryIndexedTree's prefix sum walk from r+1, and the O(log(M)) values of j visited from c+1.
+ * Updating cell (r, c) updates the tree[i][j] along both of the update walks, and a rectangle
+ * sum is combined from four prefix sums as in PrefixSumMatrix.
+ *
+ * The tree is stored in a single row-major long array: tree[i][j] is tree[i * (m + 1) + j].
+ *
+ * The tree is built in O(N*M) by applying BinaryIndexedTree's linear build to every row and
+ * then to every column. When a batch of updates is large compared to the matrix, addAll undoes
+ * the build, applies all the deltas to the plain cells and builds again, i.e. it touches every
+ * cell a constant number of times instead of doing O(log(N) * log(M)) work per update.
+ */
+public class BinaryIndexedMatrix {
+    private final int n;
+    private final int m;
+    private final int stride;
+    private final long[] tree;
+
+    /**
+     * Constructs a matrix of n * m zeros.
+     */
+    public BinaryIndexedMatrix(final int n, final int m) {
+        if (n < 1 || m < 1) {
+            throw new IllegalArgumentException(String.format("Invalid matrix size %d * %d", n, m));
+        }
+        if ((long) (n + 1) * (m + 1) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("Matrix of %d * %d is too large", n, m));
+        }
+        this.n = n;
+        this.m = m;
+        this.stride = m + 1;
+        this.tree = new long[(n + 1) * stride];
+    }
+
+    /**
+     * Constructs the matrix from the given values in O(N*M).
+     */
+    public BinaryIndexedMatrix(final int[][] matrix) {
+        this(rows(matrix), matrix[0].length);
+        for (int i = 0; i < n; i++) {
+            final int[] row = matrix[i];
+            final int base = (i + 1) * stride + 1;
+            for (int j = 0; j < m; j++) {
+                tree[base + j] = row[j];
+            }
+        }
+        build();
+    }
+
+    private static int rows(final int[][] matrix) {
+        if (matrix == null || matrix.length == 0 || matrix[0].length == 0) {
+            throw new IllegalArgumentException("Null or empty matrix");
+        }
+        return matrix.length;
+    }
+
+    public int rows() {
+        return n;
+    }
+
+    public int columns() {
+        return m;
+    }
+
+    /**
+     * Add delta to the cell (r, c).
+     * Runtime complexity: O(log(N) * log(M)).
+     */
+    public void add(final int r, final int c, final long delta) {
+        checkCell(r, c);
+        for (int i = r + 1; i <= n; i += (i & -i)) {
+            final int base = i * stride;
+            for (int j = c + 1; j <= m; j += (j & -j)) {
+                tree[base + j] += delta;
+            }
+        }
+    }
+
+    /**
+     * Apply a batch of updates, i.e. add(rows[k], cols[k], deltas[k]) for k in [0, count).
+     * Large batches are applied in a single O(N*M) pass over the matrix.
+     * The whole batch is validated first, so a bad cell leaves the matrix unchanged.
+     */
+    public void addAll(final int[] rows, final int[] cols, final long[] deltas, final int count) {
+        if (count > rows.length || count > cols.length || count > deltas.length) {
+            throw new IllegalArgumentException(
+                    String.format("Batch of %d updates does not fit in the given arrays.", count));
+        }
+        for (int k = 0; k < count; k++) {
+            checkCell(rows[k], cols[k]);
+        }
+        final long perUpdate = (long) (32 - Integer.numberOfLeadingZeros(n)) * (32 - Integer.numberOfLeadingZeros(m));
+        if (count * perUpdate < 3L * n * m) {
+            for (int k = 0; k < count; k++) {
+                add(rows[k], cols[k], deltas[k]);
+            }
+            return;
+        }
+        unbuild();
+        for (int k = 0; k < count; k++) {
+            tree[(rows[k] + 1) * stride + cols[k] + 1] += deltas[k];
+        }
+        build();
+    }
+
+    private void checkCell(final int r, final int c) {
+        if (r < 0 || r >= n || c < 0 || c >= m) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Expected cell within [0, %d) * [0, %d), but got (%d, %d).", n, m, r, c));
+        }
+    }
+
+    /**
+     * (r0, c0) .... (r0, c1)
+     * .             .
+     * .             .
+     * .             .
+     * (r1, c0) .... (r1, c1)
+     * Runtime complexity: O(log(N) * log(M)).
+     */
+    public long getSum(final int r0, final int c0, final int r1, final int c1) {
+        if (r0 < 0 || c0 < 0 || r1 >= n || c1 >= m || r0 > r1 || c0 > c1) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid rectangle (%d, %d) - (%d, %d) for matrix of %d * %d", r0, c0, r1, c1, n, m));
+        }
+        return prefixSum(r1 + 1, c1 + 1) - prefixSum(r0, c1 + 1) - prefixSum(r1 + 1, c0) + prefixSum(r0, c0);
+    }
+
+    // sum of the first r rows and c columns.
+    private long prefixSum(final int r, final int c) {
+        long sum = 0;
+        for (int i = r; i > 0; i -= (i & -i)) {
+            final int base = i * stride;
+            for (int j = c; j > 0; j -= (j & -j)) {
+                sum += tree[base + j];
+            }
+        }
+        return sum;
+    }
+
+    // turn plain cell values into the tree, see LongBinaryIndexedTree.
+    private void build() {
+        for (int i = 1; i <= n; i++) {
+            final int base = i * stride;
+            for (int j = 1; j <= m; j++) {
+                final int parent = j + (j & -j);
+                if (parent <= m) {
+                    tree[base + parent] += tree[base + j];
+                }
+            }
+        }
+        for (int i = 1; i <= n; i++) {
+            final int parent = i + (i & -i);
+            if (parent <= n) {
+                final int from = i * stride;
+                final int to = parent * stride;
+                for (int j = 1; j <= m; j++) {
+                    tree[to + j] += tree[from + j];
+                }
+            }
+        }
+    }
+
+    // the inverse of build(), undo the steps of build() in reverse order.
+    private void unbuild() {
+        for (int i = n; i > 0; i--) {
+            final int parent = i + (i & -i);
+            if (parent <= n) {
+                final int from = i * stride;
+                final int to = parent * stride;
+                for (int j = 1; j <= m; j++) {
+                    tree[to + j] -= tree[from + j];
+                }
+            }
+        }
+        for (int i = 1; i <= n; i++) {
+            final int base = i * stride;
+            for (int j = m; j > 0; j--) {
+                final int parent = j + (j & -j);
+                if (parent <= m) {
+                    tree[base + parent] -= tree[base + j];
+                }
+            }
+        }
+    }
+
+    public static void main(final String[] args) {
+        final int[][] matrix = {
+            {
+                1,  2,  3,  4,   5,  6
+            }, {
+                7,  8,  9,  10, 11, 12
+            }, {
+               13, 14, 15,  16, 17, 18
+            }
+        };
+
+        final BinaryIndexedMatrix sumMatrix = new BinaryIndexedMatrix(matrix);
+        System.out.printf("matrix(0, 0, 0, 0) = %d, expected 1.\n", sumMatrix.getSum(0, 0, 0, 0));
+        System.out.printf("matrix(0, 0, 0, 5) = %d, expected 21.\n", sumMatrix.getSum(0, 0, 0, 5));
+        System.out.printf("matrix(0, 0, 2, 0) = %d, expected 21.\n", sumMatrix.getSum(0, 0, 2, 0));
+        System.out.printf("matrix(0, 0, 2, 5) = %d, expected 171.\n", sumMatrix.getSum(0, 0, 2, 5));
+        System.out.printf("matrix(1, 3, 2, 5) = %d, expected 84.\n", sumMatrix.getSum(1, 3, 2, 5));
+
+        System.out.println("add 100 to (1, 4)");
+        sumMatrix.add(1, 4, 100);
+        System.out.printf("matrix(1, 3, 2, 5) = %d, expected 184.\n", sumMatrix.getSum(1, 3, 2, 5));
+        System.out.printf("matrix(0, 0, 0, 5) = %d, expected 21.\n", sumMatrix.getSum(0, 0, 0, 5));
+
+        System.out.println("add 1 to every cell in one batch");
+        final int cells = 3 * 6;
+        final int[] rows = new int[cells];
+        final int[] cols = new int[cells];
+        final long[] deltas = new long[cells];
+        for (int k = 0; k < cells; k++) {
+            rows[k] = k / 6;
+            cols[k] = k % 6;
+            deltas[k] = 1;
+        }
+        sumMatrix.addAll(rows, cols, deltas, cells);
+        System.out.printf("matrix(0, 0, 2, 5) = %d, expected 289.\n", sumMatrix.getSum(0, 0, 2, 5));
+        System.out.printf("matrix(1, 3, 2, 5) = %d, expected 190.\n", sumMatrix.getSum(1, 3, 2, 5));
+
+        System.out.println("add 1 to (0, 0), (3, 0) and (2, 5) in one batch");
+        try {
+            sumMatrix.addAll(new int[] {0, 3, 2}, new int[] {0, 0, 5}, new long[] {1, 1, 1}, 3);
+        } catch (final IndexOutOfBoundsException e) {
+            System.out.printf("addAll with (3, 0) throws, as expected: %s\n", e.getMessage());
+        }
+        System.out.printf("matrix(0, 0, 2, 5) = %d, expected 289 since nothing was added.\n", sumMatrix.getSum(0, 0, 2, 5));
+    }
+}
@@ -79,24 +79,30 @@ import java.util.Arrays;
  *
  * Ref: https://www.topcoder.com/community/data-science/data-science-tutorials/binary-indexed-trees/
  *
+ * See LongBinaryIndexedTree for a long valued version with a direct add(idx, delta), and
+ * RangeBinaryIndexedTree for range updates.
+ *
  * TODO(weidong): extend this class to allow the underying tree to expand to accomodate more elements.
  * 
  */
-public class BinaryIndexedTree {
+public class BinaryIndexedTree implements MutableRangeQuery {
     final int[] tree;
 
     /**
      * Constructs a Binary Indexed Tree based on the given array.
-     * Runtime complexity: O(N*log(N)), N = array.length.
+     * Runtime complexity: O(N), N = array.length.
      * @param array: the integer array to do the range sum query.
      */
     public BinaryIndexedTree(final int[] array) {
         tree = new int[array.length + 1];
-        for (int i = 0; i < array.length; i++) {
-            int idx = i + 1;
-            while (idx < tree.length) {
-                tree[idx] += array[i];
-                idx += (idx & -idx);
+        System.arraycopy(array, 0, tree, 1, array.length);
+        // instead of adding each element to all the O(log(N)) nodes that cover it,
+        // push each node's complete sum to its direct parent only, since by the time
+        // we reach a node, all of its children have already been added to it.
+        for (int idx = 1; idx < tree.length; idx++) {
+            final int parent = idx + (idx & -idx);
+            if (parent < tree.length) {
+                tree[parent] += tree[idx];
             }
         }
     }
@@ -112,6 +118,20 @@ public class BinaryIndexedTree {
        return sumFrom0(end) - sumFrom0(start-1); 
     }
 
+    @Override
+    public int query(final int left, final int right) {
+        if (left < 0 || right >= size() || left > right) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid range, expected [0, %d) but got [%d, %d]", size(), left, right));
+        }
+        return rangeSum(left, right);
+    }
+
+    @Override
+    public int size() {
+        return tree.length - 1;
+    }
+
     private int sumFrom0(int end) {
         end++;  // we are using array indexed from 1
         int sum = 0;
@@ -128,6 +148,7 @@ public class BinaryIndexedTree {
      * @param idx: index of the array to modify the value
      * @param val: the new value
      */
+    @Override
     public void set(final int idx, final int val) {
         final int diff = val - rangeSum(idx, idx);
         int i = idx + 1;  // we are using array indexed from 1
@@ -137,6 +158,44 @@ public class BinaryIndexedTree {
         }
     }
     
+    /**
+     * Find the smallest index idx such that sum(array[0...idx]) >= prefix, assuming that all
+     * values in the array are non-negative, e.g. when the tree is used as a histogram of counts.
+     * Runtime complexity: O(log(N)).
+     *
+     * Rather than binary searching over rangeSum, which costs O(log(N)) per step, we walk down
+     * the implicit tree using binary lifting: starting from pos = 0, try to extend pos by each
+     * power of 2 from the largest down. tree[pos + 2^i] is exactly the sum of the next 2^i
+     * elements after pos, since pos only has bits higher than 2^i set, so we move to pos + 2^i
+     * whenever that sum is still less than what remains of prefix.
+     * @param prefix: the prefix sum to search for
+     * @return the index, 0 if prefix <= 0, size() if prefix is more than the total sum.
+     */
+    public int lowerBound(final int prefix) {
+        final int n = tree.length - 1;
+        int pos = 0;
+        int remaining = prefix;
+        for (int step = Integer.highestOneBit(Math.max(n, 1)); step > 0; step >>= 1) {
+            final int next = pos + step;
+            if (next <= n && tree[next] < remaining) {
+                pos = next;
+                remaining -= tree[next];
+            }
+        }
+        // pos is the largest 1-based index with sum < prefix, i.e. the 0-based index of the answer.
+        return pos;
+    }
+
+    /**
+     * Find the index of the k-th smallest element (0-based) when array[i] is the count of
+     * elements that fall into bucket i, e.g. select(total / 2) is the bucket of the median.
+     * Runtime complexity: O(log(N)).
+     * @return the bucket of the k-th element, size() if there are no more than k elements.
+     */
+    public int select(final int k) {
+        return lowerBound(k + 1);
+    }
+
     public static void main(final String[] args) {
         //                    0, 1, 2, 3, 4, 5, 6, 7, 8
         final int[] array = { 1, 3, 4, 8, 6, 1, 4, 2, 3};
@@ -164,6 +223,21 @@ public class BinaryIndexedTree {
         System.out.printf("rangeSum(4, 4) = %d, expected 6\n", indexedTree.rangeSum(4, 4));
         System.out.printf("rangeSum(0, 8) = %d, expected 54\n", indexedTree.rangeSum(0, 8));
         System.out.printf("rangeSum(2, 5) = %d, expected 21\n", indexedTree.rangeSum(2, 5));
+
+        // prefix sums: 21, 24, 28, 38, 44, 45, 49, 51, 54
+        System.out.printf("lowerBound(21) = %d, expected 0\n", indexedTree.lowerBound(21));
+        System.out.printf("lowerBound(22) = %d, expected 1\n", indexedTree.lowerBound(22));
+        System.out.printf("lowerBound(45) = %d, expected 5\n", indexedTree.lowerBound(45));
+        System.out.printf("lowerBound(55) = %d, expected 9\n", indexedTree.lowerBound(55));
+        System.out.printf("select(27) = %d, expected 2 (the median bucket)\n", indexedTree.select(27));
+
+        final RangeQuery rangeQuery = indexedTree;
+        try {
+            rangeQuery.query(5, 3);
+            System.out.println("query(5, 3) did not throw.");
+        } catch (final IllegalArgumentException e) {
+            System.out.printf("query(5, 3) throws, as expected: %s\n", e.getMessage());
+        }
     }
 }
 
@@ -0,0 +1,283 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConcurrentBinaryIndexedTree is a thread safe, lock free version of LongBinaryIndexedTree
+ * for counters shared by many threads.
+ *
+ * add(idx, delta) updates each of the O(log(N)) cells on its path with an atomic getAndAdd,
+ * which never retries, so add is wait-free and completes in O(log(N)) steps regardless of
+ * other threads. prefixSum reads each cell on its path atomically, i.e. every cell read is
+ * linearizable, but the sum as a whole is not a snapshot: an add that runs concurrently with
+ * a prefixSum may be counted partially. Once all adds have completed, the sums are exact.
+ *
+ * Since every add touches the top level cells of the tree (e.g. tree[8], tree[16], ...), those
+ * cells become hot spots when many threads add at the same time. In striped mode, the tree is
+ * replicated into a number of independent stripes, and prefixSum adds up the sums of all
+ * stripes. This trades a slower prefixSum, O(stripes * log(N)), and stripes times the memory,
+ * for less contention on add, similar to LongAdder, and like LongAdder, more stripes than
+ * processors do not help, so their number is capped at the number of processors.
+ *
+ * Each thread adds to the stripe selected by a random per-thread probe rather than its thread
+ * id, whose low bits are often the same for the threads of a pool. An add tries each cell once
+ * with compareAndSet, and if that fails because another thread changed the cell, it falls back
+ * to getAndAdd, so add stays wait-free, and moves the probe of the thread to another stripe for
+ * its next add, so that threads that collide spread out over the stripes.
+ */
+public class ConcurrentBinaryIndexedTree {
+    private static final int MAX_STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+    // the stripe probe of each thread, shared by all trees.
+    private static final ThreadLocal<int[]> PROBE =
+        ThreadLocal.withInitial(() -> new int[] { ThreadLocalRandom.current().nextInt() | 1 });
+
+    private final int n;
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    /**
+     * Constructs a tree of n zeros without striping.
+     */
+    public ConcurrentBinaryIndexedTree(final int n) {
+        this(n, 1);
+    }
+
+    /**
+     * Constructs a tree of n zeros, which takes 8 * (N + 1) bytes per stripe.
+     * @param n: number of counters
+     * @param stripes: number of stripes, rounded up to a power of 2 and capped at the number of
+     * processors rounded up to a power of 2, 1 disables striping
+     */
+    public ConcurrentBinaryIndexedTree(final int n, final int stripes) {
+        if (n < 0 || stripes < 1) {
+            throw new IllegalArgumentException(
+                    String.format("Expected non-negative size and positive stripes but got %d, %d", n, stripes));
+        }
+        int count = 1;
+        while (count < stripes && count < MAX_STRIPES) {
+            count *= 2;
+        }
+        this.n = n;
+        this.stripes = new AtomicLongArray[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new AtomicLongArray(n + 1);
+        }
+        this.stripeMask = count - 1;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Add delta to array[idx].
+     * Runtime complexity: O(log(N)), wait-free.
+     */
+    public void add(final int idx, final long delta) {
+        if (idx < 0 || idx >= n) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Expected index to be within range [0, %d), but got %d.", n, idx));
+        }
+        if (stripeMask == 0) {
+            final AtomicLongArray tree = stripes[0];
+            for (int i = idx + 1; i <= n; i += (i & -i)) {
+                tree.getAndAdd(i, delta);
+            }
+            return;
+        }
+        final int[] probe = PROBE.get();
+        final AtomicLongArray tree = stripes[probe[0] & stripeMask];
+        boolean contended = false;
+        for (int i = idx + 1; i <= n; i += (i & -i)) {
+            final long cur = tree.get(i);
+            if (!tree.compareAndSet(i, cur, cur + delta)) {
+                tree.getAndAdd(i, delta);
+                contended = true;
+            }
+        }
+        if (contended) {
+            // xorshift, as LongAdder does to move a thread to another cell.
+            int h = probe[0];
+            h ^= h << 13;
+            h ^= h >>> 17;
+            h ^= h << 5;
+            probe[0] = h;
+        }
+    }
+
+    /**
+     * @return number of stripes.
+     */
+    public int stripes() {
+        return stripes.length;
+    }
+
+    /**
+     * @return sum of array[0...end], 0 if end = -1.
+     * Runtime complexity: O(stripes * log(N)).
+     */
+    public long prefixSum(final int end) {
+        if (end < -1 || end >= n) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid prefix, expected end within [-1, %d) but got %d", n, end));
+        }
+        return sum(end + 1);
+    }
+
+    /**
+     * @return sum of array[start...end].
+     */
+    public long rangeSum(final int start, final int end) {
+        if (start < 0 || end >= n || start > end) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid range, expected [0, %d) but got [%d, %d]", n, start, end));
+        }
+        return sum(end + 1) - sum(start);
+    }
+
+    // sum of the first count elements over all stripes.
+    private long sum(final int count) {
+        long sum = 0;
+        for (final AtomicLongArray tree : stripes) {
+            for (int i = count; i > 0; i -= (i & -i)) {
+                sum += tree.get(i);
+            }
+        }
+        return sum;
+    }
+
+    // keeps the JIT from removing the prefixSum calls of the benchmark.
+    private static volatile long blackhole;
+
+    /**
+     * Minimal interface over the trees under benchmark.
+     */
+    private interface Counters {
+        void add(int idx, long delta);
+        long prefixSum(int end);
+    }
+
+    /**
+     * Measure the throughput of 1 to maxThreads threads, each doing a mix of 90% add and
+     * 10% prefixSum on random indices for the given duration.
+     */
+    private static void benchmark(final String name, final Counters counters, final int n,
+            final int maxThreads, final long millis) throws InterruptedException {
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            final LongAdder ops = new LongAdder();
+            final CountDownLatch start = new CountDownLatch(1);
+            final Thread[] workers = new Thread[threads];
+            final long[] deadline = new long[1];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long done = 0;
+                    long sink = 0;
+                    try {
+                        start.await();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+                    while (System.nanoTime() < deadline[0]) {
+                        for (int i = 0; i < 1024; i++) {
+                            final int idx = random.nextInt(n);
+                            if (random.nextInt(10) == 0) {
+                                sink += counters.prefixSum(idx);
+                            } else {
+                                counters.add(idx, 1);
+                            }
+                        }
+                        done += 1024;
+                    }
+                    ops.add(done);
+                    blackhole = sink;
+                });
+                workers[t].start();
+            }
+            deadline[0] = System.nanoTime() + millis * 1_000_000L;
+            start.countDown();
+            for (final Thread worker : workers) {
+                worker.join();
+            }
+            System.out.printf("%-28s threads = %2d: %8.2f Mops/s\n", name, threads, ops.sum() / (millis * 1e3));
+        }
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        final ConcurrentBinaryIndexedTree tree = new ConcurrentBinaryIndexedTree(9, 4);
+        //                    0, 1, 2, 3, 4, 5, 6, 7, 8
+        final int[] array = { 1, 3, 4, 8, 6, 1, 4, 2, 3};
+        for (int i = 0; i < array.length; i++) {
+            tree.add(i, array[i]);
+        }
+        System.out.println("Testing ConcurrentBinaryIndexedTree against array: [1, 3, 4, 8, 6, 1, 4, 2, 3]");
+        System.out.printf("rangeSum(0, 8) = %d, expected 32\n", tree.rangeSum(0, 8));
+        System.out.printf("rangeSum(2, 5) = %d, expected 19\n", tree.rangeSum(2, 5));
+        try {
+            tree.rangeSum(0, 100);
+            System.out.println("rangeSum past the end did not throw.");
+        } catch (final IllegalArgumentException e) {
+            System.out.printf("rangeSum past the end throws, as expected: %s\n", e.getMessage());
+        }
+
+        final int threads = 8;
+        final Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    tree.add(i % 9, 1);
+                }
+            });
+            workers[t].start();
+        }
+        for (final Thread worker : workers) {
+            worker.join();
+        }
+        System.out.printf("rangeSum(0, 8) = %d, expected 800032 after %d threads added 100000 each\n",
+                tree.rangeSum(0, 8), threads);
+
+        final int n = 1 << 16;
+        final int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        final LongBinaryIndexedTree locked = new LongBinaryIndexedTree(n);
+        benchmark("synchronized", new Counters() {
+            @Override
+            public void add(final int idx, final long delta) {
+                synchronized (locked) {
+                    locked.add(idx, delta);
+                }
+            }
+
+            @Override
+            public long prefixSum(final int end) {
+                synchronized (locked) {
+                    return locked.prefixSum(end);
+                }
+            }
+        }, n, maxThreads, 200);
+        final ConcurrentBinaryIndexedTree plain = new ConcurrentBinaryIndexedTree(n);
+        benchmark("concurrent", new Counters() {
+            @Override
+            public void add(final int idx, final long delta) {
+                plain.add(idx, delta);
+            }
+
+            @Override
+            public long prefixSum(final int end) {
+                return plain.prefixSum(end);
+            }
+        }, n, maxThreads, 200);
+        final ConcurrentBinaryIndexedTree striped = new ConcurrentBinaryIndexedTree(n, maxThreads);
+        benchmark("concurrent, " + striped.stripes() + " stripes", new Counters() {
+            @Override
+            public void add(final int idx, final long delta) {
+                striped.add(idx, delta);
+            }
+
+            @Override
+            public long prefixSum(final int end) {
+                return striped.prefixSum(end);
+            }
+        }, n, maxThreads, 200);
+    }
+}
@@ -1,4 +1,5 @@
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
  * Difference array is a data structure that allow range update to be done in O(1),
@@ -14,32 +15,89 @@ import java.util.Arrays;
  * To increase a given range [a, b] by c, we only need to do
  * table[a] += c
  * table[b+1] -= c
+ *
+ * The table holds longs, so a difference of two ints, or a value increased beyond the range of
+ * int, does not wrap around.
+ *
+ * The array is recovered by a prefix sum over the table. materializeInto writes it into a
+ * caller supplied long array, and for large arrays uses a blocked two pass parallel scan:
+ * (1) split the table into blocks, and compute the prefix sums within each block in parallel.
+ * (2) the sum of all the blocks before block b, i.e. its offset, is the running total of the
+ *     last entries of the previous blocks, which is computed sequentially over the few blocks,
+ *     then added to every entry of block b, again in parallel.
  */
 public class DifferenceArray {
-    private final int[] table;
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private final long[] table;
 
     public DifferenceArray(final int[] array) {
-        table = new int[array.length];
+        table = new long[array.length];
         table[0] = array[0];
         for (int i = 1; i < array.length; i++) {
-            table[i] = array[i] - array[i-1];
+            table[i] = (long) array[i] - array[i-1];
         }
-        System.out.println(Arrays.toString(table));
     }
 
-    public void inc(final int start, final int end, final int val) {
+    public void inc(final int start, final int end, final long val) {
        table[start] += val;
        if (end < table.length-1) {
            table[end+1] -= val;
        }
     } 
 
+    /**
+     * Write the current values of the array into dest[0...length-1], without allocating,
+     * so that the same buffer can be reused after every round of inc calls.
+     * @param dest: destination, must hold at least as many elements as the array
+     */
+    public void materializeInto(final long[] dest) {
+        final int n = table.length;
+        if (dest.length < n) {
+            throw new IllegalArgumentException(
+                    String.format("Destination of length %d cannot hold %d elements.", dest.length, n));
+        }
+        if (n <= BLOCK_SIZE) {
+            long s = 0;
+            for (int i = 0; i < n; i++) {
+                s += table[i];
+                dest[i] = s;
+            }
+            return;
+        }
+        final int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        // pass 1: prefix sum within each block.
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            final int from = b * BLOCK_SIZE;
+            final int to = Math.min(from + BLOCK_SIZE, n);
+            long s = 0;
+            for (int i = from; i < to; i++) {
+                s += table[i];
+                dest[i] = s;
+            }
+        });
+        // offsets[b] = sum of all the blocks before b.
+        final long[] offsets = new long[blocks];
+        for (int b = 1; b < blocks; b++) {
+            offsets[b] = offsets[b-1] + dest[b * BLOCK_SIZE - 1];
+        }
+        // pass 2: add the offset of each block, the first block is already complete.
+        IntStream.range(1, blocks).parallel().forEach(b -> {
+            final int from = b * BLOCK_SIZE;
+            final int to = Math.min(from + BLOCK_SIZE, n);
+            final long offset = offsets[b];
+            for (int i = from; i < to; i++) {
+                dest[i] += offset;
+            }
+        });
+    }
+
     public int[] toArray() {
         final int[] array = new int[table.length];
-        int s = 0;
+        long s = 0;
         for (int i = 0; i < table.length; i++) {
             s += table[i];
-            array[i] = s;
+            array[i] = (int) s;
         }
         return array;
     }
@@ -61,6 +119,35 @@ public class DifferenceArray {
         diffArray.inc(6, 7, -2);
         System.out.println("Expected:\n[3, 13, 11, 11, 11, 15, 0, 0]\nand got:");
         System.out.println(Arrays.toString(diffArray.toArray()));
+
+        final long[] dest = new long[array.length];
+        diffArray.materializeInto(dest);
+        System.out.println("materializeInto, expected the same as above:");
+        System.out.println(Arrays.toString(dest));
+
+        final int[] extremes = { Integer.MAX_VALUE, -Integer.MAX_VALUE, 5 };
+        final DifferenceArray wide = new DifferenceArray(extremes);
+        final long[] wideDest = new long[extremes.length];
+        wide.materializeInto(wideDest);
+        System.out.printf("\nDifferences that overflow int: %s\nExpected:\n%s\n",
+                Arrays.toString(wideDest), Arrays.toString(extremes));
+        wide.inc(0, 2, Integer.MAX_VALUE);
+        wide.materializeInto(wideDest);
+        System.out.printf("Increase range [0, 2] by %d: %s\nExpected:\n[4294967294, 0, 2147483652]\n",
+                Integer.MAX_VALUE, Arrays.toString(wideDest));
+
+        final int n = 10_000_000;
+        final int[] alternating = new int[n];
+        for (int i = 0; i < n; i++) {
+            alternating[i] = i % 2 == 0 ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+        }
+        final DifferenceArray large = new DifferenceArray(alternating);
+        large.inc(0, n - 1, 1);
+        large.inc(n / 2, n - 1, Integer.MAX_VALUE);
+        final long[] buffer = new long[n];
+        large.materializeInto(buffer);
+        System.out.printf("large[0] = %d, expected %d, large[%d] = %d, expected %d\n",
+                buffer[0], 1L + Integer.MAX_VALUE, n - 1, buffer[n - 1], 1L + Integer.MIN_VALUE + Integer.MAX_VALUE);
     }
 }
 
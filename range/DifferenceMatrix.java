@@ -0,0 +1,126 @@
+import java.util.Arrays;
+
+/**
+ * DifferenceMatrix is the 2D version of DifferenceArray: adding a value to every cell of a
+ * rectangle takes O(1), and the matrix is materialized once afterwards in O(n*m).
+ *
+ * The table stores the 2D differences, i.e. the matrix is the 2D prefix sum of the table:
+ *  matrix[i][j] = sum(table[0...i][0...j])
+ * so to increase every cell of (r0, c0) - (r1, c1) by v, we only need to do
+ *  table[r0][c0] += v
+ *  table[r0][c1+1] -= v
+ *  table[r1+1][c0] -= v
+ *  table[r1+1][c1+1] += v
+ * i.e. the prefix sum adds v to every cell below and to the right of (r0, c0), and the other
+ * three corners cancel it out below row r1 and to the right of column c1.
+ *
+ * The table is stored in a single row-major long array padded with a row and a column of zeros
+ * in front, the same layout as the sums of PrefixSumMatrix. The 2D prefix sum of the table is
+ * the matrix, and the 2D prefix sum of the matrix is the prefix sums of PrefixSumMatrix, so
+ * foldIntoPrefixSumMatrix turns the table into a PrefixSumMatrix in place by running the parallel
+ * two pass prefix scan of PrefixSumMatrix twice, without copying the table.
+ */
+public class DifferenceMatrix {
+    private final int n;
+    private final int m;
+    private final int stride;
+    private long[] table;
+
+    /**
+     * Constructs a matrix of n * m zeros.
+     */
+    public DifferenceMatrix(final int n, final int m) {
+        if (n < 1 || m < 1) {
+            throw new IllegalArgumentException(String.format("Invalid matrix size %d * %d", n, m));
+        }
+        this.n = n;
+        this.m = m;
+        this.stride = m + 1;
+        this.table = new long[PrefixSumMatrix.checkedSize(n + 1, m + 1)];
+    }
+
+    public int rows() {
+        return n;
+    }
+
+    public int columns() {
+        return m;
+    }
+
+    /**
+     * Add val to every cell of the rectangle (r0, c0) - (r1, c1).
+     */
+    public void inc(final int r0, final int c0, final int r1, final int c1, final long val) {
+        if (table == null) {
+            throw new IllegalStateException("The matrix has already been folded into a PrefixSumMatrix.");
+        }
+        if (r0 < 0 || c0 < 0 || r1 >= n || c1 >= m || r0 > r1 || c0 > c1) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid rectangle (%d, %d) - (%d, %d) for matrix of %d * %d", r0, c0, r1, c1, n, m));
+        }
+        // cell (i, j) is located at (i + 1, j + 1) in the padded table.
+        final int top = (r0 + 1) * stride;
+        table[top + c0 + 1] += val;
+        if (c1 + 1 < m) {
+            table[top + c1 + 2] -= val;
+        }
+        if (r1 + 1 < n) {
+            final int bottom = (r1 + 2) * stride;
+            table[bottom + c0 + 1] -= val;
+            if (c1 + 1 < m) {
+                table[bottom + c1 + 2] += val;
+            }
+        }
+    }
+
+    /**
+     * Write the matrix into dest in row-major order, i.e. cell (i, j) into dest[i * m + j].
+     * @param dest: destination, must hold at least n * m elements
+     */
+    public void materializeInto(final long[] dest) {
+        if (table == null) {
+            throw new IllegalStateException("The matrix has already been folded into a PrefixSumMatrix.");
+        }
+        if (dest.length < (long) n * m) {
+            throw new IllegalArgumentException(
+                    String.format("Destination of length %d cannot hold %d * %d elements.", dest.length, n, m));
+        }
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(table, (i + 1) * stride + 1, dest, i * m, m);
+        }
+        PrefixSumMatrix.prefixSumInPlace(dest, n, m);
+    }
+
+    /**
+     * Turn the table into a PrefixSumMatrix of the current matrix in place. This consumes the
+     * table, so the DifferenceMatrix cannot be used afterwards.
+     */
+    public PrefixSumMatrix foldIntoPrefixSumMatrix() {
+        if (table == null) {
+            throw new IllegalStateException("The matrix has already been folded into a PrefixSumMatrix.");
+        }
+        final long[] sums = table;
+        table = null;
+        // differences -> values -> prefix sums, the zero padding is kept by both passes.
+        PrefixSumMatrix.prefixSumInPlace(sums, n + 1, m + 1);
+        PrefixSumMatrix.prefixSumInPlace(sums, n + 1, m + 1);
+        return PrefixSumMatrix.wrapPaddedSums(sums, n, m);
+    }
+
+    public static void main(final String[] args) {
+        final DifferenceMatrix diffMatrix = new DifferenceMatrix(3, 4);
+        System.out.println("Increase (0, 0) - (1, 2) by 1, (1, 1) - (2, 3) by 10, (2, 3) - (2, 3) by 100");
+        diffMatrix.inc(0, 0, 1, 2, 1);
+        diffMatrix.inc(1, 1, 2, 3, 10);
+        diffMatrix.inc(2, 3, 2, 3, 100);
+        final long[] dest = new long[3 * 4];
+        diffMatrix.materializeInto(dest);
+        System.out.println("Expected:\n[1, 1, 1, 0, 1, 11, 11, 10, 0, 10, 10, 110]\nand got:");
+        System.out.println(Arrays.toString(dest));
+
+        final PrefixSumMatrix sumMatrix = diffMatrix.foldIntoPrefixSumMatrix();
+        System.out.printf("matrix(0, 0, 2, 3) = %d, expected 166.\n", sumMatrix.getSum(0, 0, 2, 3));
+        System.out.printf("matrix(1, 1, 2, 3) = %d, expected 162.\n", sumMatrix.getSum(1, 1, 2, 3));
+        System.out.printf("matrix(0, 0, 0, 3) = %d, expected 3.\n", sumMatrix.getSum(0, 0, 0, 3));
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Disjoint sparse table answers the range query F(Arr_L, ..., Arr_R) of an immutable array in O(1)
+ * with a single application of F, for any associative F, i.e. unlike the O(1) query of SparseTable,
+ * F does not need to be idempotent, so it works for sum, product, matrix multiplication, etc.
+ * It requires O(N*log(N)) preprocessing time and space.
+ *
+ * The idea is to split the array (padded to a power of 2) into blocks of size 2^(h+1) for each
+ * level h, and for each block, with its middle at mid = start + 2^h, store:
+ *   table[h][i] = F(Arr_i, ..., Arr_(mid-1))     for i in the left half [start, mid)
+ *   table[h][i] = F(Arr_mid, ..., Arr_i)         for i in the right half [mid, start + 2^(h+1))
+ * i.e. the suffixes of the left half and the prefixes of the right half.
+ *
+ * For a query [L, R] with L < R, let h be the highest bit in which L and R differ, i.e.
+ *   h = floor(log2(L xor R))
+ * then L and R are in the same block of level h, but L is in its left half and R in its right half,
+ * so the range [L, R] is made up of a suffix of the left half and a prefix of the right half:
+ *   F(Arr_L, ..., Arr_R) = F(table[h][L], table[h][R])
+ * and the case L = R is simply Arr_L.
+ *
+ * e.g. for L = 5 = 0101b, R = 6 = 0110b, L xor R = 0011b, so h = 1, the block of level 1 is [4, 7],
+ * with mid = 6, hence F(Arr_5, Arr_6) = F(table[1][5], table[1][6]) = F(F(Arr_5), F(Arr_6)).
+ *
+ * The levels are stored in one flat array: table[h][i] is located at table[h*size + i], where size
+ * is the length of the array padded to the next power of 2.
+ *
+ * Ref: https://discuss.codechef.com/t/tutorial-disjoint-sparse-table/17404
+ */
+public class DisjointSparseTable {
+    private final int n;
+    private final int size;
+    private final int[] array;
+    private final int[] table;
+    private final IntBinaryOperator func;
+
+    /**
+     * Constructs a DisjointSparseTable that can be used to answer the range query of func(array[left...right]).
+     * @param array: an immutable array of querying
+     * @param func: the query function, which must be associative, i.e. func(x, func(y, z)) = func(func(x, y), z)
+     */
+    public DisjointSparseTable(final int[] array, final IntBinaryOperator func) {
+        if (array == null || array.length == 0) {
+            throw new IllegalArgumentException("Argument cannot be empty array.");
+        }
+        this.n = array.length;
+        this.array = Arrays.copyOf(array, n);
+        this.func = func;
+        int sz = 1;
+        int levels = 0;
+        while (sz < n) {
+            sz *= 2;
+            levels++;
+        }
+        this.size = sz;
+        if ((long) levels * size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(
+                    String.format("Array of length %d is too large for a DisjointSparseTable.", n));
+        }
+        table = new int[levels * size];
+        for (int h = 0; h < levels; h++) {
+            final int half = 1 << h;
+            final int base = h * size;
+            for (int start = 0; start < n; start += 2 * half) {
+                final int mid = start + half;
+                if (mid >= n) {
+                    // no query can have its right end in this block's right half.
+                    break;
+                }
+                table[base + mid - 1] = array[mid - 1];
+                for (int i = mid - 2; i >= start; i--) {
+                    table[base + i] = func.applyAsInt(array[i], table[base + i + 1]);
+                }
+                final int end = Math.min(start + 2 * half, n);
+                table[base + mid] = array[mid];
+                for (int i = mid + 1; i < end; i++) {
+                    table[base + i] = func.applyAsInt(table[base + i - 1], array[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Answer the range query of func(array[start...end]).
+     * @param start: starting index
+     * @param end: ending index
+     * @return func(array[start...end])
+     */
+    public int query(final int start, final int end) {
+        if (start > end) {
+            throw new IllegalArgumentException(String.format("Invalid range, expected start <= end, but got [%d, %d]", start, end));
+        }
+        if (start < 0 || end >= n) {
+            throw new IllegalArgumentException(String.format("Invalid range, expected [0, %d], but got [%d, %d].", n, start, end));
+        }
+        if (start == end) {
+            return array[start];
+        }
+        final int h = 31 - Integer.numberOfLeadingZeros(start ^ end);
+        return func.applyAsInt(table[h * size + start], table[h * size + end]);
+    }
+
+    public static void main(final String[] args) {
+        //             0  1  2  3  4  5  6  7, 8
+        int[] array = {1, 3, 8, 4, 6, 1, 3, 4, 5};
+
+        System.out.printf("Testing query of range sum, for array: %s\n", Arrays.toString(array));
+        final DisjointSparseTable sumTable = new DisjointSparseTable(array, Integer::sum);
+        System.out.printf("sum(0, 0) = %d, expected 1\n", sumTable.query(0, 0));
+        System.out.printf("sum(0, 8) = %d, expected 35\n", sumTable.query(0, 8));
+        System.out.printf("sum(0, 7) = %d, expected 30\n", sumTable.query(0, 7));
+        System.out.printf("sum(3, 5) = %d, expected 11\n", sumTable.query(3, 5));
+        System.out.printf("sum(5, 6) = %d, expected 4\n", sumTable.query(5, 6));
+        System.out.printf("sum(7, 8) = %d, expected 9\n", sumTable.query(7, 8));
+
+        // string concatenation encoded as base 10 digits, which is associative but not commutative.
+        final DisjointSparseTable concatTable = new DisjointSparseTable(
+                new int[]{1, 2, 3, 4, 5, 6}, (x, y) -> x * (y < 10 ? 10 : y < 100 ? 100 : y < 1000 ? 1000 : 10000) + y);
+        System.out.printf("concat(1, 4) = %d, expected 2345\n", concatTable.query(1, 4));
+        System.out.printf("concat(3, 5) = %d, expected 456\n", concatTable.query(3, 5));
+    }
+}
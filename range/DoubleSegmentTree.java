@@ -0,0 +1,142 @@
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * DoubleSegmentTree is the primitive double specialization of SegmentTree.
+ *
+ * It uses exactly the same array layout and algorithms as SegmentTree, but the query
+ * function is a DoubleBinaryOperator instead of a BiFunction<Integer, Integer, Integer>,
+ * so building, querying and updating the tree never boxes its arguments or results.
+ *
+ * The commonly used query functions are provided as constants (MIN, MAX, SUM)
+ * together with factory methods that pair them with their zero value, e.g.
+ *   DoubleSegmentTree.min(array)  is the same as  new DoubleSegmentTree(array, Double.POSITIVE_INFINITY, MIN)
+ *
+ * Note that floating point addition is not strictly associative, so range sums may differ
+ * from a sequential sum in the last few bits.
+ */
+public class DoubleSegmentTree {
+    public static final DoubleBinaryOperator MIN = Math::min;
+    public static final DoubleBinaryOperator MAX = Math::max;
+    public static final DoubleBinaryOperator SUM = Double::sum;
+
+    private final int sz;
+    private final int n;
+    private final double[] tree;
+    private final double zero;
+    private final DoubleBinaryOperator func;
+
+    /**
+     * Create a segment tree for the given array.
+     * @param array: an array for doing the range query
+     * @param zero: the zero value that satisfies func(zero, x) = func(x, zero) = x
+     * @param func: the query function, must satisfies associative rule: func(x, func(y, z)) = func(func(x, y), z).
+     */
+    public DoubleSegmentTree(final double[] array, final double zero, final DoubleBinaryOperator func) {
+        this.sz = array.length;
+        this.zero = zero;
+        this.func = func;
+        n = getNextPowerOf2(array.length);
+        tree = new double[2*n];
+        System.arraycopy(array, 0, tree, n, array.length);
+        // add padding to ensure that we have power of 2 size.
+        Arrays.fill(tree, n + array.length, 2*n, zero);
+        for (int i = n-1; i > 0; i--) {
+            tree[i] = func.applyAsDouble(tree[2*i], tree[2*i+1]);
+        }
+    }
+
+    public static DoubleSegmentTree min(final double[] array) {
+        return new DoubleSegmentTree(array, Double.POSITIVE_INFINITY, MIN);
+    }
+
+    public static DoubleSegmentTree max(final double[] array) {
+        return new DoubleSegmentTree(array, Double.NEGATIVE_INFINITY, MAX);
+    }
+
+    public static DoubleSegmentTree sum(final double[] array) {
+        return new DoubleSegmentTree(array, 0.0, SUM);
+    }
+
+    /**
+     * Query the given range [left, right] and return the result.
+     * @param left: starting range (inclusive)
+     * @param right: ending range (inclusive)
+     * @return query result of applying func over the given range.
+     */
+    public double query(final int left, final int right) {
+        if (left < 0 || right >= sz || left > right) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid range, expected [0, %d) but got [%d, %d]", sz, left, right));
+        }
+        int a = left + n;
+        int b = right + n;
+        // keep the left and right parts apart so that func does not need to be commutative.
+        double sl = zero;
+        double sr = zero;
+        while (a <= b) {
+            if (a % 2 == 1) {
+                sl = func.applyAsDouble(sl, tree[a]);
+                a++;
+            }
+            if (b % 2 == 0) {
+                sr = func.applyAsDouble(tree[b], sr);
+                b--;
+            }
+            a /= 2;
+            b /= 2;
+        }
+        return func.applyAsDouble(sl, sr);
+    }
+
+    /**
+     * Update the value at the given index.
+     * @param idx: index of the original array.
+     * @param val: new value.
+     */
+    public void set(final int idx, final double val) {
+        if (idx < 0 || idx >= sz) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Expected index to be within range [0, %d), but got %d.", sz, idx));
+        }
+        int k = idx + n;
+        tree[k] = val;
+        for (int p = k / 2; p > 0; p /= 2) {
+            tree[p] = func.applyAsDouble(tree[2*p], tree[2*p+1]);
+        }
+    }
+
+    public int size() {
+        return sz;
+    }
+
+    private static int getNextPowerOf2(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException(
+                    String.format("Expected argument to be greater than 0 but got: %d", n));
+        }
+        int p = 1;
+        while (p < n) {
+            p *= 2;
+        }
+        return p;
+    }
+
+    public static void main(final String[] args) {
+        //                       0    1    2    3    4    5    6    7    8
+        final double[] array = { 0.5, 8.0, 6.0, 3.0, 2.0, 7.0, 2.0, 6.0, 1.5};
+        System.out.printf("Testing DoubleSegmentTree against array: %s\n", Arrays.toString(array));
+
+        final DoubleSegmentTree sumTree = DoubleSegmentTree.sum(array);
+        System.out.printf("rangeSum(0, 8) = %.1f, expected 36.0\n", sumTree.query(0, 8));
+        sumTree.set(0, 10.25);
+        System.out.printf("rangeSum(0, 1) = %.2f, expected 18.25 after set(0, 10.25)\n", sumTree.query(0, 1));
+
+        final DoubleSegmentTree minTree = DoubleSegmentTree.min(array);
+        System.out.printf("rangeMin(0, 8) = %.1f, expected 0.5\n", minTree.query(0, 8));
+        System.out.printf("rangeMin(5, 8) = %.1f, expected 1.5\n", minTree.query(5, 8));
+
+        final DoubleSegmentTree maxTree = DoubleSegmentTree.max(array);
+        System.out.printf("rangeMax(2, 6) = %.1f, expected 7.0\n", maxTree.query(2, 6));
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * IntSegmentTree is the primitive int specialization of SegmentTree.
+ *
+ * It uses exactly the same array layout and algorithms as SegmentTree, but the query
+ * function is an IntBinaryOperator instead of a BiFunction<Integer, Integer, Integer>,
+ * so building, querying and updating the tree never boxes its arguments or results.
+ *
+ * The commonly used query functions are provided as constants (MIN, MAX, SUM, GCD, XOR)
+ * together with factory methods that pair them with their zero value, e.g.
+ *   IntSegmentTree.min(array)  is the same as  new IntSegmentTree(array, Integer.MAX_VALUE, MIN)
+ *
+ * See LongSegmentTree and DoubleSegmentTree for the long and double versions.
+ */
+public class IntSegmentTree implements MutableRangeQuery {
+    public static final IntBinaryOperator MIN = Math::min;
+    public static final IntBinaryOperator MAX = Math::max;
+    public static final IntBinaryOperator SUM = Integer::sum;
+    public static final IntBinaryOperator GCD = IntSegmentTree::gcd;
+    public static final IntBinaryOperator XOR = (x, y) -> x ^ y;
+
+    private final int sz;
+    private final int n;
+    private final int[] tree;
+    private final int zero;
+    private final IntBinaryOperator func;
+
+    /**
+     * Create a segment tree for the given array.
+     * @param array: an array for doing the range query
+     * @param zero: the zero value that satisfies func(zero, x) = func(x, zero) = x
+     * @param func: the query function, must satisfies associative rule: func(x, func(y, z)) = func(func(x, y), z).
+     */
+    public IntSegmentTree(final int[] array, final int zero, final IntBinaryOperator func) {
+        this.sz = array.length;
+        this.zero = zero;
+        this.func = func;
+        n = getNextPowerOf2(array.length);
+        tree = new int[2*n];
+        System.arraycopy(array, 0, tree, n, array.length);
+        // add padding to ensure that we have power of 2 size.
+        Arrays.fill(tree, n + array.length, 2*n, zero);
+        for (int i = n-1; i > 0; i--) {
+            tree[i] = func.applyAsInt(tree[2*i], tree[2*i+1]);
+        }
+    }
+
+    public static IntSegmentTree min(final int[] array) {
+        return new IntSegmentTree(array, Integer.MAX_VALUE, MIN);
+    }
+
+    public static IntSegmentTree max(final int[] array) {
+        return new IntSegmentTree(array, Integer.MIN_VALUE, MAX);
+    }
+
+    public static IntSegmentTree sum(final int[] array) {
+        return new IntSegmentTree(array, 0, SUM);
+    }
+
+    /**
+     * Range gcd, the values are expected to be non-negative.
+     */
+    public static IntSegmentTree gcd(final int[] array) {
+        return new IntSegmentTree(array, 0, GCD);
+    }
+
+    public static IntSegmentTree xor(final int[] array) {
+        return new IntSegmentTree(array, 0, XOR);
+    }
+
+    /**
+     * Query the given range [left, right] and return the result.
+     * @param left: starting range (inclusive)
+     * @param right: ending range (inclusive)
+     * @return query result of applying func over the given range.
+     */
+    @Override
+    public int query(final int left, final int right) {
+        if (left < 0 || right >= sz || left > right) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid range, expected [0, %d) but got [%d, %d]", sz, left, right));
+        }
+        int a = left + n;
+        int b = right + n;
+        // keep the left and right parts apart so that func does not need to be commutative.
+        int sl = zero;
+        int sr = zero;
+        while (a <= b) {
+            if (a % 2 == 1) {
+                sl = func.applyAsInt(sl, tree[a]);
+                a++;
+            }
+            if (b % 2 == 0) {
+                sr = func.applyAsInt(tree[b], sr);
+                b--;
+            }
+            a /= 2;
+            b /= 2;
+        }
+        return func.applyAsInt(sl, sr);
+    }
+
+    /**
+     * Update the value at the given index.
+     * @param idx: index of the original array.
+     * @param val: new value.
+     */
+    @Override
+    public void set(final int idx, final int val) {
+        if (idx < 0 || idx >= sz) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Expected index to be within range [0, %d), but got %d.", sz, idx));
+        }
+        int k = idx + n;
+        tree[k] = val;
+        for (int p = k / 2; p > 0; p /= 2) {
+            tree[p] = func.applyAsInt(tree[2*p], tree[2*p+1]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return sz;
+    }
+
+    private static int gcd(int x, int y) {
+        while (y != 0) {
+            final int t = x % y;
+            x = y;
+            y = t;
+        }
+        return x;
+    }
+
+    private static int getNextPowerOf2(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException(
+                    String.format("Expected argument to be greater than 0 but got: %d", n));
+        }
+        int p = 1;
+        while (p < n) {
+            p *= 2;
+        }
+        return p;
+    }
+
+    public static void main(final String[] args) {
+        //                    0  1  2  3  4  5  6  7  8
+        final int[] array = { 5, 8, 6, 3, 2, 7, 2, 6, 10};
+        System.out.printf("Testing IntSegmentTree against array: %s\n", Arrays.toString(array));
+
+        final IntSegmentTree sumTree = IntSegmentTree.sum(array);
+        System.out.printf("rangeSum(0, 8) = %d, expected 49\n", sumTree.query(0, 8));
+        System.out.printf("rangeSum(1, 5) = %d, expected 26\n", sumTree.query(1, 5));
+        sumTree.set(0, 10);
+        System.out.printf("rangeSum(0, 8) = %d, expected 54 after set(0, 10)\n", sumTree.query(0, 8));
+
+        final IntSegmentTree minTree = IntSegmentTree.min(array);
+        System.out.printf("rangeMin(0, 8) = %d, expected 2\n", minTree.query(0, 8));
+        System.out.printf("rangeMin(0, 3) = %d, expected 3\n", minTree.query(0, 3));
+
+        final IntSegmentTree maxTree = IntSegmentTree.max(array);
+        System.out.printf("rangeMax(0, 7) = %d, expected 8\n", maxTree.query(0, 7));
+        System.out.printf("rangeMax(3, 8) = %d, expected 10\n", maxTree.query(3, 8));
+
+        final IntSegmentTree gcdTree = IntSegmentTree.gcd(array);
+        System.out.printf("rangeGcd(1, 2) = %d, expected 2\n", gcdTree.query(1, 2));
+        System.out.printf("rangeGcd(7, 8) = %d, expected 2\n", gcdTree.query(7, 8));
+        System.out.printf("rangeGcd(0, 8) = %d, expected 1\n", gcdTree.query(0, 8));
+
+        final IntSegmentTree xorTree = IntSegmentTree.xor(array);
+        System.out.printf("rangeXor(0, 2) = %d, expected 11\n", xorTree.query(0, 2));
+        System.out.printf("rangeXor(3, 3) = %d, expected 3\n", xorTree.query(3, 3));
+    }
+}
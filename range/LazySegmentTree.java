@@ -0,0 +1,255 @@
+import java.util.Arrays;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Lazy segment tree extends SegmentTree with range updates, i.e.
+ * (1) add v to every element of [left, right] in O(log(N))
+ * (2) assign v to every element of [left, right] in O(log(N))
+ * (3) query func(array[left...right]) in O(log(N))
+ *
+ * Updating every element of a range one by one using SegmentTree.set costs
+ * O((right-left) * log(N)). Instead, we stop at the same O(log(N)) inner nodes that a
+ * query would use, update their values directly, and leave a tag on them saying
+ * "the children still need this update". The tag is pushed down to the children only
+ * when a later update or query needs to go below that node.
+ *
+ * To update a node's value without visiting its children, we need to know how func
+ * reacts to the update:
+ *  for sum, adding v to every element of a node covering len elements adds v*len to it,
+ *      and assigning v to every element sets it to v*len.
+ *  for min and max, adding v to every element adds v to it, and assigning v sets it to v.
+ * This is described by lengthScaled, which is true for sum and false for min/max.
+ *
+ * Each node keeps two tags, which are applied as "assign first, then add":
+ *  - an assign tag replaces everything below it, so it clears any pending add tag.
+ *  - an add tag on top of a pending assign is simply accumulated in the add tag.
+ *
+ * The tree uses the same array layout as SegmentTree: root at tree[1], children of i at
+ * 2*i and 2*i+1 and leaves at tree[n] ... tree[2*n-1], where n is the next power of 2.
+ */
+public class LazySegmentTree {
+    private final int sz;
+    private final int n;
+    private final long[] tree;
+    private final long[] addTag;
+    private final long[] assignTag;
+    private final boolean[] hasAssign;
+    private final long zero;
+    private final LongBinaryOperator func;
+    private final boolean lengthScaled;
+
+    /**
+     * Create a lazy segment tree for the given array.
+     * @param array: an array for doing the range query
+     * @param zero: the zero value that satisfies func(zero, x) = func(x, zero) = x
+     * @param func: the query function, must satisfies associative rule: func(x, func(y, z)) = func(func(x, y), z).
+     * @param lengthScaled: true if adding v to each of len elements changes func by v*len (e.g. sum),
+     *   false if it changes func by v (e.g. min, max).
+     */
+    public LazySegmentTree(
+            final long[] array,
+            final long zero,
+            final LongBinaryOperator func,
+            final boolean lengthScaled
+    ) {
+        this.sz = array.length;
+        this.zero = zero;
+        this.func = func;
+        this.lengthScaled = lengthScaled;
+        n = getNextPowerOf2(array.length);
+        tree = new long[2*n];
+        addTag = new long[2*n];
+        assignTag = new long[2*n];
+        hasAssign = new boolean[2*n];
+        System.arraycopy(array, 0, tree, n, array.length);
+        Arrays.fill(tree, n + array.length, 2*n, zero);
+        for (int i = n-1; i > 0; i--) {
+            tree[i] = func.applyAsLong(tree[2*i], tree[2*i+1]);
+        }
+    }
+
+    public static LazySegmentTree sum(final long[] array) {
+        return new LazySegmentTree(array, 0, Long::sum, true);
+    }
+
+    public static LazySegmentTree min(final long[] array) {
+        return new LazySegmentTree(array, Long.MAX_VALUE, Math::min, false);
+    }
+
+    public static LazySegmentTree max(final long[] array) {
+        return new LazySegmentTree(array, Long.MIN_VALUE, Math::max, false);
+    }
+
+    /**
+     * Query the given range [left, right] and return the result.
+     * @param left: starting range (inclusive)
+     * @param right: ending range (inclusive)
+     * @return query result of applying func over the given range.
+     */
+    public long query(final int left, final int right) {
+        checkRange(left, right);
+        return query(1, 0, n-1, left, right);
+    }
+
+    /**
+     * Add val to every element in the range [left, right].
+     */
+    public void add(final int left, final int right, final long val) {
+        checkRange(left, right);
+        update(1, 0, n-1, left, right, false, val);
+    }
+
+    /**
+     * Set every element in the range [left, right] to val.
+     */
+    public void assign(final int left, final int right, final long val) {
+        checkRange(left, right);
+        update(1, 0, n-1, left, right, true, val);
+    }
+
+    /**
+     * Update the value at the given index.
+     * @param idx: index of the original array.
+     * @param val: new value.
+     */
+    public void set(final int idx, final long val) {
+        if (idx < 0 || idx >= sz) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Expected index to be within range [0, %d), but got %d.", sz, idx));
+        }
+        update(1, 0, n-1, idx, idx, true, val);
+    }
+
+    private long query(final int node, final int lo, final int hi, final int left, final int right) {
+        if (left <= lo && hi <= right) {
+            return tree[node];
+        }
+        pushDown(node, hi - lo + 1);
+        final int mid = (lo + hi) >>> 1;
+        if (right <= mid) {
+            return query(2*node, lo, mid, left, right);
+        }
+        if (left > mid) {
+            return query(2*node+1, mid+1, hi, left, right);
+        }
+        return func.applyAsLong(
+                query(2*node, lo, mid, left, right),
+                query(2*node+1, mid+1, hi, left, right));
+    }
+
+    private void update(
+            final int node, final int lo, final int hi,
+            final int left, final int right,
+            final boolean isAssign, final long val
+    ) {
+        if (left <= lo && hi <= right) {
+            if (isAssign) {
+                applyAssign(node, hi - lo + 1, val);
+            } else {
+                applyAdd(node, hi - lo + 1, val);
+            }
+            return;
+        }
+        pushDown(node, hi - lo + 1);
+        final int mid = (lo + hi) >>> 1;
+        if (left <= mid) {
+            update(2*node, lo, mid, left, right, isAssign, val);
+        }
+        if (right > mid) {
+            update(2*node+1, mid+1, hi, left, right, isAssign, val);
+        }
+        tree[node] = func.applyAsLong(tree[2*node], tree[2*node+1]);
+    }
+
+    private void applyAssign(final int node, final int len, final long val) {
+        tree[node] = lengthScaled ? val * len : val;
+        if (node < n) {
+            hasAssign[node] = true;
+            assignTag[node] = val;
+            addTag[node] = 0;
+        }
+    }
+
+    private void applyAdd(final int node, final int len, final long val) {
+        tree[node] += lengthScaled ? val * len : val;
+        if (node < n) {
+            addTag[node] += val;
+        }
+    }
+
+    // move the pending tags of node to its children, node covers len elements.
+    private void pushDown(final int node, final int len) {
+        final int half = len / 2;
+        if (hasAssign[node]) {
+            applyAssign(2*node, half, assignTag[node]);
+            applyAssign(2*node+1, half, assignTag[node]);
+            hasAssign[node] = false;
+        }
+        if (addTag[node] != 0) {
+            applyAdd(2*node, half, addTag[node]);
+            applyAdd(2*node+1, half, addTag[node]);
+            addTag[node] = 0;
+        }
+    }
+
+    private void checkRange(final int left, final int right) {
+        if (left < 0 || right >= sz || left > right) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid range, expected [0, %d) but got [%d, %d]", sz, left, right));
+        }
+    }
+
+    private static int getNextPowerOf2(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException(
+                    String.format("Expected argument to be greater than 0 but got: %d", n));
+        }
+        int p = 1;
+        while (p < n) {
+            p *= 2;
+        }
+        return p;
+    }
+
+    public static void main(final String[] args) {
+        //                     0  1  2  3  4  5  6  7  8
+        final long[] array = { 5, 8, 6, 3, 2, 7, 2, 6, 10};
+        System.out.printf("Testing LazySegmentTree against array: %s\n", Arrays.toString(array));
+
+        final LazySegmentTree sumTree = LazySegmentTree.sum(array);
+        System.out.printf("rangeSum(0, 8) = %d, expected 49\n", sumTree.query(0, 8));
+        System.out.println("Add 3 to [2, 6]");
+        sumTree.add(2, 6, 3);
+        // val: 5, 8, 9, 6, 5, 10, 5, 6, 10
+        System.out.printf("rangeSum(0, 8) = %d, expected 64\n", sumTree.query(0, 8));
+        System.out.printf("rangeSum(3, 4) = %d, expected 11\n", sumTree.query(3, 4));
+        System.out.printf("rangeSum(6, 8) = %d, expected 21\n", sumTree.query(6, 8));
+        System.out.println("Assign 1 to [1, 4], then add 2 to [4, 5]");
+        sumTree.assign(1, 4, 1);
+        sumTree.add(4, 5, 2);
+        // val: 5, 1, 1, 1, 3, 12, 5, 6, 10
+        System.out.printf("rangeSum(0, 8) = %d, expected 44\n", sumTree.query(0, 8));
+        System.out.printf("rangeSum(2, 4) = %d, expected 5\n", sumTree.query(2, 4));
+        System.out.printf("rangeSum(5, 5) = %d, expected 12\n", sumTree.query(5, 5));
+
+        final LazySegmentTree minTree = LazySegmentTree.min(array);
+        System.out.printf("rangeMin(0, 8) = %d, expected 2\n", minTree.query(0, 8));
+        System.out.println("Add 10 to [3, 6]");
+        minTree.add(3, 6, 10);
+        // val: 5, 8, 6, 13, 12, 17, 12, 6, 10
+        System.out.printf("rangeMin(3, 6) = %d, expected 12\n", minTree.query(3, 6));
+        System.out.printf("rangeMin(0, 8) = %d, expected 5\n", minTree.query(0, 8));
+        System.out.println("Assign 0 to [5, 5]");
+        minTree.assign(5, 5, 0);
+        System.out.printf("rangeMin(4, 6) = %d, expected 0\n", minTree.query(4, 6));
+
+        final LazySegmentTree maxTree = LazySegmentTree.max(array);
+        System.out.println("Assign 20 to [0, 3], then add -5 to [2, 8]");
+        maxTree.assign(0, 3, 20);
+        maxTree.add(2, 8, -5);
+        // val: 20, 20, 15, 15, -3, 2, -3, 1, 5
+        System.out.printf("rangeMax(0, 8) = %d, expected 20\n", maxTree.query(0, 8));
+        System.out.printf("rangeMax(2, 8) = %d, expected 15\n", maxTree.query(2, 8));
+        System.out.printf("rangeMax(4, 8) = %d, expected 5\n", maxTree.query(4, 8));
+    }
+}
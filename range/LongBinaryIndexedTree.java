@@ -0,0 +1,181 @@
+import java.util.Arrays;
+
+/**
+ * LongBinaryIndexedTree is a long valued Binary Indexed Tree (see BinaryIndexedTree for how it works),
+ * meant to be used as a table of counters:
+ * (1) add(idx, delta) adds delta to array[idx] directly, without first querying the old value
+ *     as BinaryIndexedTree.set does, so an update walks the tree only once.
+ * (2) sums are accumulated in long, so they do not overflow for large arrays of int sized values.
+ * (3) the tree is built in O(N) instead of O(N*log(N)).
+ *
+ * The tree is built in place: tree[k] starts as Arr_k, then for k = 1, 2, ..., N, the complete
+ * tree[k] is added to its parent tree[k + p(k)], i.e. the next node that covers Arr_k. Since
+ * parent > k, each node has received all of its children before it is pushed to its own parent.
+ */
+public class LongBinaryIndexedTree {
+    final long[] tree;
+
+    /**
+     * Constructs a tree of n zeros.
+     */
+    public LongBinaryIndexedTree(final int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException(String.format("Expected non-negative size but got %d", n));
+        }
+        tree = new long[n + 1];
+    }
+
+    /**
+     * Constructs a tree based on the given array.
+     * Runtime complexity: O(N), N = array.length.
+     */
+    public LongBinaryIndexedTree(final long[] array) {
+        tree = new long[array.length + 1];
+        System.arraycopy(array, 0, tree, 1, array.length);
+        build();
+    }
+
+    /**
+     * Constructs a tree based on the given array.
+     * Runtime complexity: O(N), N = array.length.
+     */
+    public LongBinaryIndexedTree(final int[] array) {
+        tree = new long[array.length + 1];
+        for (int i = 0; i < array.length; i++) {
+            tree[i + 1] = array[i];
+        }
+        build();
+    }
+
+    private void build() {
+        for (int idx = 1; idx < tree.length; idx++) {
+            final int parent = idx + (idx & -idx);
+            if (parent < tree.length) {
+                tree[parent] += tree[idx];
+            }
+        }
+    }
+
+    public int size() {
+        return tree.length - 1;
+    }
+
+    /**
+     * Add delta to array[idx].
+     * Runtime complexity: O(log(N)).
+     */
+    public void add(final int idx, final long delta) {
+        if (idx < 0 || idx >= tree.length - 1) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Expected index to be within range [0, %d), but got %d.", tree.length - 1, idx));
+        }
+        for (int i = idx + 1; i < tree.length; i += (i & -i)) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @return sum of array[0...end], 0 if end = -1.
+     * Runtime complexity: O(log(N)).
+     */
+    public long prefixSum(final int end) {
+        final int n = tree.length - 1;
+        if (end < -1 || end >= n) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid prefix, expected end within [-1, %d) but got %d", n, end));
+        }
+        return sum(end + 1);
+    }
+
+    /**
+     * @return sum of array[start...end].
+     * Runtime complexity: O(log(N)).
+     */
+    public long rangeSum(final int start, final int end) {
+        final int n = tree.length - 1;
+        if (start < 0 || end >= n || start > end) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid range, expected [0, %d) but got [%d, %d]", n, start, end));
+        }
+        return sum(end + 1) - sum(start);
+    }
+
+    // sum of the first count elements.
+    private long sum(final int count) {
+        long sum = 0;
+        for (int i = count; i > 0; i -= (i & -i)) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Find the smallest index idx such that sum(array[0...idx]) >= prefix, assuming that all
+     * values in the array are non-negative, e.g. when the tree is used as a histogram of counts.
+     * Runtime complexity: O(log(N)), by binary lifting, see BinaryIndexedTree.lowerBound.
+     * @param prefix: the prefix sum to search for
+     * @return the index, 0 if prefix <= 0, size() if prefix is more than the total sum.
+     */
+    public int lowerBound(final long prefix) {
+        final int n = tree.length - 1;
+        int pos = 0;
+        long remaining = prefix;
+        for (int step = Integer.highestOneBit(Math.max(n, 1)); step > 0; step >>= 1) {
+            final int next = pos + step;
+            if (next <= n && tree[next] < remaining) {
+                pos = next;
+                remaining -= tree[next];
+            }
+        }
+        // pos is the largest 1-based index with sum < prefix, i.e. the 0-based index of the answer.
+        return pos;
+    }
+
+    /**
+     * Find the index of the k-th smallest element (0-based) when array[i] is the count of
+     * elements that fall into bucket i, e.g. select(total / 2) is the bucket of the median.
+     * Runtime complexity: O(log(N)).
+     * @return the bucket of the k-th element, size() if there are no more than k elements.
+     */
+    public int select(final long k) {
+        return lowerBound(k + 1);
+    }
+
+    public static void main(final String[] args) {
+        //                    0, 1, 2, 3, 4, 5, 6, 7, 8
+        final int[] array = { 1, 3, 4, 8, 6, 1, 4, 2, 3};
+        final LongBinaryIndexedTree indexedTree = new LongBinaryIndexedTree(array);
+
+        System.out.printf("Testing LongBinaryIndexedTree against array: %s\n", Arrays.toString(array));
+        System.out.printf("rangeSum(0, 0) = %d, expected 1\n", indexedTree.rangeSum(0, 0));
+        System.out.printf("rangeSum(3, 3) = %d, expected 8\n", indexedTree.rangeSum(3, 3));
+        System.out.printf("rangeSum(0, 8) = %d, expected 32\n", indexedTree.rangeSum(0, 8));
+        System.out.printf("rangeSum(2, 5) = %d, expected 19\n", indexedTree.rangeSum(2, 5));
+
+        System.out.println("add 2 to array[3], add Integer.MAX_VALUE to array[0]");
+        indexedTree.add(3, 2);
+        indexedTree.add(0, Integer.MAX_VALUE);
+        System.out.printf("rangeSum(3, 3) = %d, expected 10\n", indexedTree.rangeSum(3, 3));
+        System.out.printf("rangeSum(2, 5) = %d, expected 21\n", indexedTree.rangeSum(2, 5));
+        System.out.printf("rangeSum(0, 8) = %d, expected 2147483681\n", indexedTree.rangeSum(0, 8));
+
+        System.out.println("Testing select on a latency histogram with buckets of 10ms");
+        final LongBinaryIndexedTree histogram = new LongBinaryIndexedTree(10);
+        //                    0ms 10ms 20ms 30ms 40ms 50ms 60ms 70ms 80ms 90ms
+        final long[] counts = { 5,  40,  30,  10,   5,   4,   3,   2,   0,   1};
+        for (int i = 0; i < counts.length; i++) {
+            histogram.add(i, counts[i]);
+        }
+        final long total = histogram.prefixSum(9);
+        System.out.printf("median bucket = %d, expected 2\n", histogram.select(total / 2));
+        System.out.printf("p90 bucket = %d, expected 5\n", histogram.select(total * 90 / 100));
+        System.out.printf("p99 bucket = %d, expected 9\n", histogram.select(total * 99 / 100));
+        System.out.printf("max bucket = %d, expected 9\n", histogram.select(total - 1));
+        try {
+            histogram.rangeSum(0, counts.length + 5);
+            System.out.println("rangeSum past the end did not throw.");
+        } catch (final IllegalArgumentException e) {
+            System.out.printf("rangeSum past the end throws, as expected: %s\n", e.getMessage());
+        }
+    }
+}
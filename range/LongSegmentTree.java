@@ -0,0 +1,168 @@
+import java.util.Arrays;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * LongSegmentTree is the primitive long specialization of SegmentTree.
+ *
+ * It uses exactly the same array layout and algorithms as SegmentTree, but the query
+ * function is a LongBinaryOperator instead of a BiFunction<Integer, Integer, Integer>,
+ * so building, querying and updating the tree never boxes its arguments or results.
+ *
+ * The commonly used query functions are provided as constants (MIN, MAX, SUM, GCD, XOR)
+ * together with factory methods that pair them with their zero value, e.g.
+ *   LongSegmentTree.min(array)  is the same as  new LongSegmentTree(array, Long.MAX_VALUE, MIN)
+ *
+ * Using long values also avoids the overflow of range sums over large int arrays.
+ */
+public class LongSegmentTree {
+    public static final LongBinaryOperator MIN = Math::min;
+    public static final LongBinaryOperator MAX = Math::max;
+    public static final LongBinaryOperator SUM = Long::sum;
+    public static final LongBinaryOperator GCD = LongSegmentTree::gcd;
+    public static final LongBinaryOperator XOR = (x, y) -> x ^ y;
+
+    private final int sz;
+    private final int n;
+    private final long[] tree;
+    private final long zero;
+    private final LongBinaryOperator func;
+
+    /**
+     * Create a segment tree for the given array.
+     * @param array: an array for doing the range query
+     * @param zero: the zero value that satisfies func(zero, x) = func(x, zero) = x
+     * @param func: the query function, must satisfies associative rule: func(x, func(y, z)) = func(func(x, y), z).
+     */
+    public LongSegmentTree(final long[] array, final long zero, final LongBinaryOperator func) {
+        this.sz = array.length;
+        this.zero = zero;
+        this.func = func;
+        n = getNextPowerOf2(array.length);
+        tree = new long[2*n];
+        System.arraycopy(array, 0, tree, n, array.length);
+        // add padding to ensure that we have power of 2 size.
+        Arrays.fill(tree, n + array.length, 2*n, zero);
+        for (int i = n-1; i > 0; i--) {
+            tree[i] = func.applyAsLong(tree[2*i], tree[2*i+1]);
+        }
+    }
+
+    public static LongSegmentTree min(final long[] array) {
+        return new LongSegmentTree(array, Long.MAX_VALUE, MIN);
+    }
+
+    public static LongSegmentTree max(final long[] array) {
+        return new LongSegmentTree(array, Long.MIN_VALUE, MAX);
+    }
+
+    public static LongSegmentTree sum(final long[] array) {
+        return new LongSegmentTree(array, 0, SUM);
+    }
+
+    /**
+     * Range gcd, the values are expected to be non-negative.
+     */
+    public static LongSegmentTree gcd(final long[] array) {
+        return new LongSegmentTree(array, 0, GCD);
+    }
+
+    public static LongSegmentTree xor(final long[] array) {
+        return new LongSegmentTree(array, 0, XOR);
+    }
+
+    /**
+     * Query the given range [left, right] and return the result.
+     * @param left: starting range (inclusive)
+     * @param right: ending range (inclusive)
+     * @return query result of applying func over the given range.
+     */
+    public long query(final int left, final int right) {
+        if (left < 0 || right >= sz || left > right) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid range, expected [0, %d) but got [%d, %d]", sz, left, right));
+        }
+        int a = left + n;
+        int b = right + n;
+        // keep the left and right parts apart so that func does not need to be commutative.
+        long sl = zero;
+        long sr = zero;
+        while (a <= b) {
+            if (a % 2 == 1) {
+                sl = func.applyAsLong(sl, tree[a]);
+                a++;
+            }
+            if (b % 2 == 0) {
+                sr = func.applyAsLong(tree[b], sr);
+                b--;
+            }
+            a /= 2;
+            b /= 2;
+        }
+        return func.applyAsLong(sl, sr);
+    }
+
+    /**
+     * Update the value at the given index.
+     * @param idx: index of the original array.
+     * @param val: new value.
+     */
+    public void set(final int idx, final long val) {
+        if (idx < 0 || idx >= sz) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Expected index to be within range [0, %d), but got %d.", sz, idx));
+        }
+        int k = idx + n;
+        tree[k] = val;
+        for (int p = k / 2; p > 0; p /= 2) {
+            tree[p] = func.applyAsLong(tree[2*p], tree[2*p+1]);
+        }
+    }
+
+    public int size() {
+        return sz;
+    }
+
+    private static long gcd(long x, long y) {
+        while (y != 0) {
+            final long t = x % y;
+            x = y;
+            y = t;
+        }
+        return x;
+    }
+
+    private static int getNextPowerOf2(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException(
+                    String.format("Expected argument to be greater than 0 but got: %d", n));
+        }
+        int p = 1;
+        while (p < n) {
+            p *= 2;
+        }
+        return p;
+    }
+
+    public static void main(final String[] args) {
+        //                     0  1  2  3  4  5  6  7  8
+        final long[] array = { 5, 8, 6, 3, 2, 7, 2, 6, 10};
+        System.out.printf("Testing LongSegmentTree against array: %s\n", Arrays.toString(array));
+
+        final LongSegmentTree sumTree = LongSegmentTree.sum(array);
+        System.out.printf("rangeSum(0, 8) = %d, expected 49\n", sumTree.query(0, 8));
+        sumTree.set(0, 5_000_000_000L);
+        System.out.printf("rangeSum(0, 1) = %d, expected 5000000008 after set(0, 5000000000)\n", sumTree.query(0, 1));
+
+        final LongSegmentTree minTree = LongSegmentTree.min(array);
+        System.out.printf("rangeMin(0, 8) = %d, expected 2\n", minTree.query(0, 8));
+
+        final LongSegmentTree maxTree = LongSegmentTree.max(array);
+        System.out.printf("rangeMax(3, 8) = %d, expected 10\n", maxTree.query(3, 8));
+
+        final LongSegmentTree gcdTree = LongSegmentTree.gcd(array);
+        System.out.printf("rangeGcd(7, 8) = %d, expected 2\n", gcdTree.query(7, 8));
+
+        final LongSegmentTree xorTree = LongSegmentTree.xor(array);
+        System.out.printf("rangeXor(0, 2) = %d, expected 11\n", xorTree.query(0, 2));
+    }
+}
@@ -0,0 +1,256 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MappedPrefixSumMatrix is an out-of-core PrefixSumMatrix for matrices that do not fit in the heap.
+ *
+ * build() streams a raw matrix from disk, a band of rows at a time, and writes its 2D prefix sums to
+ * an output file. Only the previous row of sums is kept in memory, since
+ *  sum(0, 0, i, j) = sum(0, 0, i-1, j) + (Arr_(i,0) + ... + Arr_(i,j))
+ * i.e. each output row is the previous output row plus the running sum of the current input row.
+ *
+ * open() maps the output file, and getSum answers each query with four reads from the mapped
+ * file, so the OS only has to bring the touched pages into memory.
+ *
+ * Input format: rows * cols little-endian 4 byte ints in row-major order, without any header.
+ *
+ * Output format: a 32 byte header followed by the sums as little-endian 8 byte longs in row-major
+ * order, padded with a row and a column of zeros in front, i.e. (rows + 1) * (cols + 1) entries with
+ *  entry (i, j) = sum(0, 0, i-1, j-1), and entry (0, j) = entry (i, 0) = 0
+ * so a query does not need to special case r0 = 0 or c0 = 0.
+ *
+ *   offset  size  content
+ *   0       4     MAGIC
+ *   4       4     FORMAT_VERSION
+ *   8       4     rows
+ *   12      4     cols
+ *   16      16    reserved, zeros
+ *
+ * A mapping is limited to 2GB, so the file is mapped in chunks of whole rows.
+ *
+ * build() never leaves partial sums behind under the output name: the sums are written to a
+ * temporary file in the same directory and forced to disk before the header, so the magic number
+ * is only on disk once all the sums are, and then the temporary file is renamed over the output
+ * atomically.
+ */
+public class MappedPrefixSumMatrix {
+    static final int MAGIC = 0x50534d58; // "PSMX"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    private static final int READ_BUFFER_SIZE = 8 << 20;
+
+    private final int n;
+    private final int m;
+    private final int stride;
+    private final int rowsPerChunk;
+    private final LongBuffer[] chunks;
+
+    private MappedPrefixSumMatrix(final int n, final int m, final int rowsPerChunk, final LongBuffer[] chunks) {
+        this.n = n;
+        this.m = m;
+        this.stride = m + 1;
+        this.rowsPerChunk = rowsPerChunk;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Compute the prefix sums of a raw matrix file and write them to the output file.
+     * @param input: rows * cols little-endian ints in row-major order
+     * @param rows: number of rows
+     * @param cols: number of columns
+     * @param output: the output file, replaced if it exists
+     */
+    public static void build(final Path input, final int rows, final int cols, final Path output) throws IOException {
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException(String.format("Invalid matrix size %d * %d", rows, cols));
+        }
+        final long stride = cols + 1L;
+        if (stride * 8 > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException(String.format("Rows of %d columns are too long to be mapped.", cols));
+        }
+        final Path dir = output.toAbsolutePath().getParent();
+        final Path tmp = Files.createTempFile(dir, output.getFileName().toString(), ".tmp");
+        try {
+            try (final FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+                 final FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                writeSums(in, input, rows, cols, out);
+                out.force(false);
+                // the header goes last, so a crash before this point leaves no valid file.
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(rows).putInt(cols).clear();
+                out.position(0);
+                writeFully(out, header);
+                out.force(false);
+            }
+            Files.move(tmp, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // write the padded sums after a zeroed header.
+    private static void writeSums(
+            final FileChannel in,
+            final Path input,
+            final int rows,
+            final int cols,
+            final FileChannel out
+    ) throws IOException {
+        if (in.size() != 4L * rows * cols) {
+            throw new IOException(String.format("%s has %d bytes, expected %d for a %d * %d matrix.",
+                        input, in.size(), 4L * rows * cols, rows, cols));
+        }
+        final long stride = cols + 1L;
+        writeFully(out, ByteBuffer.allocate(HEADER_SIZE));
+
+        // the previous row of sums, starting with the padding row of zeros.
+        final long[] above = new long[cols + 1];
+        final ByteBuffer outRow = ByteBuffer.allocateDirect((int) (stride * 8)).order(ByteOrder.LITTLE_ENDIAN);
+        writeRow(out, outRow, above);
+
+        final int rowsPerRead = (int) Math.max(1, Math.min(rows, READ_BUFFER_SIZE / (4L * cols)));
+        final ByteBuffer band = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE, 4L * cols * rowsPerRead))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        for (int r = 0; r < rows; r += rowsPerRead) {
+            final int bandRows = Math.min(rowsPerRead, rows - r);
+            band.clear().limit(4 * cols * bandRows);
+            while (band.hasRemaining()) {
+                if (in.read(band, 4L * cols * r + band.position()) < 0) {
+                    throw new IOException(String.format("Unexpected end of %s.", input));
+                }
+            }
+            band.flip();
+            for (int i = 0; i < bandRows; i++) {
+                long rowSum = 0;
+                for (int j = 1; j <= cols; j++) {
+                    rowSum += band.getInt();
+                    above[j] += rowSum;
+                }
+                writeRow(out, outRow, above);
+            }
+        }
+    }
+
+    /**
+     * Open a file written by build().
+     */
+    public static MappedPrefixSumMatrix open(final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(String.format("%s is too short to be a prefix sum matrix file.", file));
+            }
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException(String.format("Unexpected end of %s.", file));
+                }
+            }
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(String.format("%s is not a prefix sum matrix file.", file));
+            }
+            if (header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException(String.format("%s has format version %d, expected %d.",
+                            file, header.getInt(4), FORMAT_VERSION));
+            }
+            final int rows = header.getInt(8);
+            final int cols = header.getInt(12);
+            final long rowBytes = (cols + 1L) * 8;
+            if (rows < 1 || cols < 1 || channel.size() != HEADER_SIZE + (rows + 1L) * rowBytes) {
+                throw new IOException(String.format("%s is truncated or corrupted.", file));
+            }
+            final int rowsPerChunk = (int) Math.max(1, MAX_CHUNK_SIZE / rowBytes);
+            final int totalRows = rows + 1;
+            final LongBuffer[] chunks = new LongBuffer[(totalRows + rowsPerChunk - 1) / rowsPerChunk];
+            for (int c = 0; c < chunks.length; c++) {
+                final long firstRow = (long) c * rowsPerChunk;
+                final long chunkRows = Math.min(rowsPerChunk, totalRows - firstRow);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + firstRow * rowBytes, chunkRows * rowBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asLongBuffer();
+            }
+            return new MappedPrefixSumMatrix(rows, cols, rowsPerChunk, chunks);
+        }
+    }
+
+    public int rows() {
+        return n;
+    }
+
+    public int columns() {
+        return m;
+    }
+
+    /**
+     * (r0, c0) .... (r0, c1)
+     * .             .
+     * .             .
+     * .             .
+     * (r1, c0) .... (r1, c1)
+     */
+    public long getSum(final int r0, final int c0, final int r1, final int c1) {
+        if (r0 < 0 || c0 < 0 || r1 >= n || c1 >= m || r0 > r1 || c0 > c1) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid rectangle (%d, %d) - (%d, %d) for matrix of %d * %d", r0, c0, r1, c1, n, m));
+        }
+        return entry(r1 + 1, c1 + 1) - entry(r0, c1 + 1) - entry(r1 + 1, c0) + entry(r0, c0);
+    }
+
+    // entry (i, j) of the padded sums.
+    private long entry(final int i, final int j) {
+        return chunks[i / rowsPerChunk].get((i % rowsPerChunk) * stride + j);
+    }
+
+    private static void writeRow(final FileChannel out, final ByteBuffer buffer, final long[] row) throws IOException {
+        buffer.clear();
+        buffer.asLongBuffer().put(row);
+        writeFully(out, buffer);
+    }
+
+    private static void writeFully(final FileChannel out, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final int[][] matrix = {
+            {
+                1,  2,  3,  4,   5,  6
+            }, {
+                7,  8,  9,  10, 11, 12
+            }, {
+               13, 14, 15,  16, 17, 18
+            }
+        };
+        final Path input = Files.createTempFile("matrix", ".bin");
+        final Path output = Files.createTempFile("matrix_sums", ".bin");
+        try {
+            final ByteBuffer raw = ByteBuffer.allocate(4 * 3 * 6).order(ByteOrder.LITTLE_ENDIAN);
+            for (final int[] row : matrix) {
+                for (final int v : row) {
+                    raw.putInt(v);
+                }
+            }
+            Files.write(input, raw.array());
+
+            build(input, 3, 6, output);
+            final MappedPrefixSumMatrix sumMatrix = open(output);
+            System.out.printf("matrix(0, 0, 0, 0) = %d, expected 1.\n", sumMatrix.getSum(0, 0, 0, 0));
+            System.out.printf("matrix(0, 0, 0, 5) = %d, expected 21.\n", sumMatrix.getSum(0, 0, 0, 5));
+            System.out.printf("matrix(0, 0, 2, 0) = %d, expected 21.\n", sumMatrix.getSum(0, 0, 2, 0));
+            System.out.printf("matrix(0, 0, 2, 5) = %d, expected 171.\n", sumMatrix.getSum(0, 0, 2, 5));
+            System.out.printf("matrix(1, 3, 2, 5) = %d, expected 84.\n", sumMatrix.getSum(1, 3, 2, 5));
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+}
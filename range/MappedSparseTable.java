@@ -0,0 +1,323 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * MappedSparseTable answers the same queries as SparseTable, but reads the table from a file
+ * through FileChannel.map instead of the heap, so that a table over a large immutable array
+ * only has to be built once, and later processes can start answering queries right away:
+ * nothing is copied to the heap, and the OS loads the pages of the file on demand.
+ *
+ * The file stores the flat level-major layout of SparseTable after a fixed size header:
+ *
+ *   offset  size  content
+ *   0       4     MAGIC
+ *   4       4     FORMAT_VERSION
+ *   8       4     operator id, see operatorId()
+ *   12      4     n, length of the array
+ *   16      4     k, the last level
+ *   20      12    reserved, zeros
+ *   32      ...   level 0 (n entries), level 1 (n - 1 entries), ..., level j (n - 2^j + 1 entries)
+ *
+ * All values are 4 byte little-endian ints. Only the built-in SparseTable.Operator can be stored,
+ * since a custom function cannot be recovered from the file, and opening a file checks both the
+ * operator and the array length against what the caller expects.
+ *
+ * Each level is mapped separately, so the table can be larger than 2GB, but a single level,
+ * i.e. the array itself, must fit in 2GB (n < 2^29).
+ *
+ * write() and build() never leave a partial table behind under the given name: the table is
+ * written to a temporary file in the same directory, the levels are forced to disk first and
+ * the header last, so the magic number is only on disk once the whole table is, and then the
+ * temporary file is renamed over the given one atomically.
+ */
+public class MappedSparseTable {
+    static final int MAGIC = 0x53505442; // "SPTB"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    private static final int MAX_LEVEL_LENGTH = Integer.MAX_VALUE / 4;
+
+    private final int n;
+    private final int k;
+    private final SparseTable.Operator op;
+    private final IntBuffer[] levels;
+
+    private MappedSparseTable(final int n, final int k, final SparseTable.Operator op, final IntBuffer[] levels) {
+        this.n = n;
+        this.k = k;
+        this.op = op;
+        this.levels = levels;
+    }
+
+    /**
+     * Write a table built in memory to the given file.
+     * @param table: a table built with one of the built-in operators
+     * @param file: the output file, replaced if it exists
+     */
+    public static void write(final SparseTable table, final Path file) throws IOException {
+        if (table.operator == null) {
+            throw new IllegalArgumentException("Only tables built with a SparseTable.Operator can be written.");
+        }
+        writeAtomically(file, table.operator, table.n, table.k, channel -> {
+            for (int j = 0; j <= table.k; j++) {
+                final MappedByteBuffer level = mapLevelBytes(channel, FileChannel.MapMode.READ_WRITE, table.n, j);
+                asInts(level).put(table.table, table.levelStart[j], levelLength(table.n, j));
+                level.force();
+            }
+        });
+    }
+
+    /**
+     * Build the table for the given array straight into the file, without holding the
+     * table in the heap, for arrays whose table does not fit in memory.
+     * @param array: an immutable array of querying
+     * @param op: the query function
+     * @param file: the output file, replaced if it exists
+     */
+    public static void build(final int[] array, final SparseTable.Operator op, final Path file) throws IOException {
+        final int n = array.length;
+        checkLength(n);
+        final int k = SparseTable.largestPowerOf2NotGreaterThanN(n);
+        writeAtomically(file, op, n, k, channel -> {
+            final MappedByteBuffer first = mapLevelBytes(channel, FileChannel.MapMode.READ_WRITE, n, 0);
+            IntBuffer prev = asInts(first).put(0, array);
+            first.force();
+            for (int j = 1; j <= k; j++) {
+                final MappedByteBuffer level = mapLevelBytes(channel, FileChannel.MapMode.READ_WRITE, n, j);
+                final IntBuffer cur = asInts(level);
+                final int half = 1 << (j - 1);
+                final int len = levelLength(n, j);
+                for (int i = 0; i < len; i++) {
+                    cur.put(i, op.applyAsInt(prev.get(i), prev.get(i + half)));
+                }
+                level.force();
+                prev = cur;
+            }
+        });
+    }
+
+    private interface LevelWriter {
+        void writeLevels(FileChannel channel) throws IOException;
+    }
+
+    // write the levels and then the header to a temporary file, and rename it to file.
+    private static void writeAtomically(
+            final Path file,
+            final SparseTable.Operator op,
+            final int n,
+            final int k,
+            final LevelWriter levels
+    ) throws IOException {
+        checkLength(n);
+        final Path dir = file.toAbsolutePath().getParent();
+        final Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (final FileChannel channel = openForWrite(tmp)) {
+                levels.writeLevels(channel);
+                writeHeader(channel, op, n, k);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Open a table previously written by write() or build().
+     * @param file: the table file
+     * @param op: the operator the table is expected to be built with
+     * @param length: the length of the array the table is expected to be built for
+     */
+    public static MappedSparseTable open(final Path file, final SparseTable.Operator op, final int length)
+            throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(String.format("%s is too short to be a sparse table file.", file));
+            }
+            final IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer();
+            if (header.get(0) != MAGIC) {
+                throw new IOException(String.format("%s is not a sparse table file.", file));
+            }
+            if (header.get(1) != FORMAT_VERSION) {
+                throw new IOException(String.format("%s has format version %d, expected %d.",
+                            file, header.get(1), FORMAT_VERSION));
+            }
+            if (header.get(2) != operatorId(op)) {
+                throw new IllegalArgumentException(String.format("%s was built with operator id %d, expected %d (%s).",
+                            file, header.get(2), operatorId(op), op));
+            }
+            final int n = header.get(3);
+            final int k = header.get(4);
+            if (n != length) {
+                throw new IllegalArgumentException(String.format("%s was built for an array of length %d, expected %d.",
+                            file, n, length));
+            }
+            if (k != SparseTable.largestPowerOf2NotGreaterThanN(n) || channel.size() != fileSize(n, k)) {
+                throw new IOException(String.format("%s is truncated or corrupted.", file));
+            }
+            final IntBuffer[] levels = new IntBuffer[k+1];
+            for (int j = 0; j <= k; j++) {
+                levels[j] = mapLevel(channel, FileChannel.MapMode.READ_ONLY, n, j);
+            }
+            // the mapping stays valid after the channel is closed.
+            return new MappedSparseTable(n, k, op, levels);
+        }
+    }
+
+    /**
+     * Answer the range query of op(array[start...end]).
+     * @param start: starting index
+     * @param end: ending index
+     * @return op(array[start...end])
+     */
+    public int query(final int start, final int end) {
+        if (start > end) {
+            throw new IllegalArgumentException(String.format("Invalid range, expected start <= end, but got [%d, %d]", start, end));
+        }
+        if (start < 0 || end >= n) {
+            throw new IllegalArgumentException(String.format("Invalid range, expected [0, %d], but got [%d, %d].", n, start, end));
+        }
+        if (op.isIdempotent()) {
+            final int j = 31 - Integer.numberOfLeadingZeros(end - start + 1);
+            return op.applyAsInt(levels[j].get(start), levels[j].get(end - (1 << j) + 1));
+        }
+        int result = op.zero();
+        int m = start;
+        for (int i = k; i >= 0; i--) {
+            if (m + (1 << i) - 1 <= end) {
+                result = op.applyAsInt(result, levels[i].get(m));
+                m += (1 << i);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Ids stored in the file, these must never change for an existing operator.
+     */
+    static int operatorId(final SparseTable.Operator op) {
+        switch (op) {
+            case SUM:
+                return 1;
+            case MIN:
+                return 2;
+            case MAX:
+                return 3;
+            case GCD:
+                return 4;
+            default:
+                throw new IllegalArgumentException("Unknown operator: " + op);
+        }
+    }
+
+    private static FileChannel openForWrite(final Path file) throws IOException {
+        return FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private static void writeHeader(final FileChannel channel, final SparseTable.Operator op, final int n, final int k)
+            throws IOException {
+        final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(MAGIC)
+            .putInt(FORMAT_VERSION)
+            .putInt(operatorId(op))
+            .putInt(n)
+            .putInt(k);
+        header.force();
+    }
+
+    private static IntBuffer mapLevel(final FileChannel channel, final FileChannel.MapMode mode, final int n, final int j)
+            throws IOException {
+        return asInts(mapLevelBytes(channel, mode, n, j));
+    }
+
+    private static MappedByteBuffer mapLevelBytes(
+            final FileChannel channel,
+            final FileChannel.MapMode mode,
+            final int n,
+            final int j
+    ) throws IOException {
+        return channel.map(mode, levelOffset(n, j), 4L * levelLength(n, j));
+    }
+
+    private static IntBuffer asInts(final MappedByteBuffer bytes) {
+        return bytes.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static void checkLength(final int n) {
+        if (n < 1 || n > MAX_LEVEL_LENGTH) {
+            throw new IllegalArgumentException(
+                    String.format("Expected array length within [1, %d], but got %d.", MAX_LEVEL_LENGTH, n));
+        }
+    }
+
+    private static int levelLength(final int n, final int j) {
+        return n - (1 << j) + 1;
+    }
+
+    private static long levelOffset(final int n, final int j) {
+        long offset = HEADER_SIZE;
+        for (int i = 0; i < j; i++) {
+            offset += 4L * levelLength(n, i);
+        }
+        return offset;
+    }
+
+    private static long fileSize(final int n, final int k) {
+        return levelOffset(n, k) + 4L * levelLength(n, k);
+    }
+
+    public static void main(final String[] args) throws IOException {
+        //                   0  1  2  3  4  5  6  7, 8
+        final int[] array = {1, 3, 8, 4, 6, 1, 3, 4, 5};
+        final Path minFile = Files.createTempFile("sparse_table_min", ".bin");
+        final Path sumFile = Files.createTempFile("sparse_table_sum", ".bin");
+        try {
+            System.out.printf("Testing MappedSparseTable against array: %s\n", Arrays.toString(array));
+            write(new SparseTable(array, SparseTable.Operator.MIN), minFile);
+            final MappedSparseTable minTable = open(minFile, SparseTable.Operator.MIN, array.length);
+            System.out.printf("min(0, 8) = %d, expected 1\n", minTable.query(0, 8));
+            System.out.printf("min(2, 4) = %d, expected 4\n", minTable.query(2, 4));
+            System.out.printf("min(6, 8) = %d, expected 3\n", minTable.query(6, 8));
+
+            build(array, SparseTable.Operator.SUM, sumFile);
+            final MappedSparseTable sumTable = open(sumFile, SparseTable.Operator.SUM, array.length);
+            System.out.printf("sum(0, 8) = %d, expected 35\n", sumTable.query(0, 8));
+            System.out.printf("sum(3, 5) = %d, expected 11\n", sumTable.query(3, 5));
+            System.out.printf("sum(7, 8) = %d, expected 9\n", sumTable.query(7, 8));
+
+            try {
+                open(sumFile, SparseTable.Operator.MAX, array.length);
+                System.out.println("open with the wrong operator succeeded, expected an exception");
+            } catch (final IllegalArgumentException e) {
+                System.out.printf("open with the wrong operator failed as expected: %s\n", e.getMessage());
+            }
+            try {
+                open(sumFile, SparseTable.Operator.SUM, array.length + 1);
+                System.out.println("open with the wrong length succeeded, expected an exception");
+            } catch (final IllegalArgumentException e) {
+                System.out.printf("open with the wrong length failed as expected: %s\n", e.getMessage());
+            }
+        } finally {
+            Files.deleteIfExists(minFile);
+            Files.deleteIfExists(sumFile);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * MoAlgorithm answers a batch of range queries offline, for queries that cannot be combined
+ * from sub-ranges, such as the number of distinct values or the frequency of the mode.
+ *
+ * It only needs a Window that can add or remove one element at either end of the current range
+ * [curL, curR] in O(1). The queries are sorted so that consecutive queries are close to each
+ * other, and the window is moved from one query to the next, i.e. the answer of a query is
+ * derived from the answer of the previous one instead of being computed from scratch.
+ *
+ * Classic Mo's algorithm sorts the queries by (l / sqrt(n), r), here the queries are sorted
+ * along a Hilbert curve over the (l, r) plane instead. Points that are close on the curve are
+ * close in the plane, so the total distance moved by curL and curR is O(n * sqrt(q)), and in
+ * practice it is noticeably smaller than with the block order. With O(1) add and remove, the
+ * whole batch takes O((n + q) * sqrt(n)).
+ *
+ * The Hilbert index of each query is packed together with the query index into a single long,
+ * so the queries are sorted with a primitive sort. When the two do not fit into 63 bits, the
+ * lowest bits of the Hilbert index are dropped, which only makes the order slightly coarser.
+ */
+public class MoAlgorithm {
+    /**
+     * The state of the range [curL, curR] of the array, i.e. the elements added and not yet
+     * removed. Indices are passed instead of values, so that no value is ever boxed.
+     */
+    public interface Window {
+        /**
+         * Add array[idx] to the range.
+         */
+        void add(int idx);
+
+        /**
+         * Remove array[idx] from the range.
+         */
+        void remove(int idx);
+
+        /**
+         * @return the answer for the current range.
+         */
+        long answer();
+    }
+
+    private MoAlgorithm() {
+    }
+
+    /**
+     * Answer the queries [lefts[k], rights[k]], k in [0, lefts.length), over an array of size n.
+     * @param out: out[k] is set to the answer of query k
+     */
+    public static void answerAll(
+            final int n,
+            final int[] lefts,
+            final int[] rights,
+            final long[] out,
+            final Window window
+    ) {
+        final int q = lefts.length;
+        if (rights.length != q || out.length < q) {
+            throw new IllegalArgumentException(
+                    String.format("Got %d lefts and %d rights for %d outputs.", q, rights.length, out.length));
+        }
+        for (int k = 0; k < q; k++) {
+            if (lefts[k] < 0 || rights[k] >= n || lefts[k] > rights[k]) {
+                throw new IllegalArgumentException(String.format(
+                            "Given range [%d, %d] is invalid, should be within [0, %d]", lefts[k], rights[k], n - 1));
+            }
+        }
+
+        final long[] order = hilbertSort(n, lefts, rights);
+        int curL = 0;
+        int curR = -1;
+        for (final long packed : order) {
+            final int k = (int) (packed & ((1L << indexBits(q)) - 1));
+            final int l = lefts[k];
+            final int r = rights[k];
+            // grow the window before shrinking it, so it never becomes an invalid range.
+            while (curL > l) {
+                window.add(--curL);
+            }
+            while (curR < r) {
+                window.add(++curR);
+            }
+            while (curL < l) {
+                window.remove(curL++);
+            }
+            while (curR > r) {
+                window.remove(curR--);
+            }
+            out[k] = window.answer();
+        }
+    }
+
+    private static int indexBits(final int q) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(q - 1));
+    }
+
+    /**
+     * @return the query indices packed as (hilbert index << indexBits | k), in sorted order.
+     */
+    private static long[] hilbertSort(final int n, final int[] lefts, final int[] rights) {
+        final int q = lefts.length;
+        final int order = Math.max(1, 32 - Integer.numberOfLeadingZeros(n - 1));
+        final int indexBits = indexBits(q);
+        final int shift = Math.max(0, 2 * order + indexBits - 63);
+        final long[] packed = new long[q];
+        for (int k = 0; k < q; k++) {
+            packed[k] = (hilbertIndex(lefts[k], rights[k], order) >>> shift) << indexBits | k;
+        }
+        Arrays.sort(packed);
+        return packed;
+    }
+
+    /**
+     * @return the position of (x, y) along the Hilbert curve filling [0, 2^order) * [0, 2^order).
+     */
+    static long hilbertIndex(int x, int y, final int order) {
+        final int max = (1 << order) - 1;
+        long d = 0;
+        for (int s = 1 << (order - 1); s > 0; s >>= 1) {
+            final int rx = (x & s) != 0 ? 1 : 0;
+            final int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant, so the curve in it starts and ends at the right corners.
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = max - x;
+                    y = max - y;
+                }
+                final int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Number of distinct values in the range, for values in [0, maxValue].
+     */
+    static final class DistinctCount implements Window {
+        private final int[] array;
+        private final int[] counts;
+        private int distinct;
+
+        DistinctCount(final int[] array, final int maxValue) {
+            this.array = array;
+            this.counts = new int[maxValue + 1];
+        }
+
+        @Override
+        public void add(final int idx) {
+            if (counts[array[idx]]++ == 0) {
+                distinct++;
+            }
+        }
+
+        @Override
+        public void remove(final int idx) {
+            if (--counts[array[idx]] == 0) {
+                distinct--;
+            }
+        }
+
+        @Override
+        public long answer() {
+            return distinct;
+        }
+    }
+
+    /**
+     * Frequency of the most frequent value in the range, for values in [0, maxValue].
+     * numWithCount[c] is the number of values that occur c times, so when the only value with
+     * the highest count is removed, the highest count simply drops by one.
+     */
+    static final class ModeFrequency implements Window {
+        private final int[] array;
+        private final int[] counts;
+        private final int[] numWithCount;
+        private int maxCount;
+
+        ModeFrequency(final int[] array, final int maxValue) {
+            this.array = array;
+            this.counts = new int[maxValue + 1];
+            this.numWithCount = new int[array.length + 1];
+        }
+
+        @Override
+        public void add(final int idx) {
+            final int c = ++counts[array[idx]];
+            numWithCount[c - 1]--;
+            numWithCount[c]++;
+            maxCount = Math.max(maxCount, c);
+        }
+
+        @Override
+        public void remove(final int idx) {
+            final int c = counts[array[idx]]--;
+            numWithCount[c]--;
+            numWithCount[c - 1]++;
+            if (c == maxCount && numWithCount[c] == 0) {
+                maxCount--;
+            }
+        }
+
+        @Override
+        public long answer() {
+            return maxCount;
+        }
+    }
+
+    public static void main(final String[] args) {
+        //                    0  1  2  3  4  5  6  7  8
+        final int[] array = { 1, 3, 1, 2, 3, 3, 1, 4, 2};
+        final int[] lefts = { 0, 1, 3, 0, 7, 2};
+        final int[] rights = {8, 5, 4, 2, 7, 6};
+        final long[] out = new long[lefts.length];
+        System.out.printf("Testing MoAlgorithm against array: %s\n", Arrays.toString(array));
+        System.out.printf("queries: %s - %s\n", Arrays.toString(lefts), Arrays.toString(rights));
+        answerAll(array.length, lefts, rights, out, new DistinctCount(array, 4));
+        System.out.printf("distinct count = %s, expected [4, 3, 2, 2, 1, 3]\n", Arrays.toString(out));
+        answerAll(array.length, lefts, rights, out, new ModeFrequency(array, 4));
+        System.out.printf("mode frequency = %s, expected [3, 3, 1, 2, 1, 2]\n", Arrays.toString(out));
+
+        final int n = 200_000;
+        final int q = 200_000;
+        final Random random = new Random(42);
+        final int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextInt(1000);
+        }
+        final int[] ls = new int[q];
+        final int[] rs = new int[q];
+        for (int k = 0; k < q; k++) {
+            final int a = random.nextInt(n);
+            final int b = random.nextInt(n);
+            ls[k] = Math.min(a, b);
+            rs[k] = Math.max(a, b);
+        }
+        final long[] answers = new long[q];
+        final long start = System.nanoTime();
+        answerAll(n, ls, rs, answers, new DistinctCount(values, 999));
+        System.out.printf("answered %d distinct count queries over %d elements in %.1f ms\n",
+                q, n, (System.nanoTime() - start) / 1e6);
+    }
+}
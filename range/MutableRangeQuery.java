@@ -0,0 +1,10 @@
+/**
+ * MutableRangeQuery is a RangeQuery whose array can be modified, e.g. SegmentTree and
+ * BinaryIndexedTree.
+ */
+public interface MutableRangeQuery extends RangeQuery {
+    /**
+     * Set array[idx] to val.
+     */
+    void set(int idx, int val);
+}
@@ -0,0 +1,295 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Cleaner;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongToIntFunction;
+
+/**
+ * OffHeapSegmentTree is an IntSegmentTree stored outside of the Java heap with long indices, for
+ * arrays of more than 2^30 elements, which the int[] of SegmentTree cannot hold.
+ *
+ * The tree does not pad the array to a power of 2, it uses exactly 2 * N ints:
+ *  tree[N + i] = Arr_i
+ *  tree[i] = F(tree[2*i], tree[2*i+1]) for i = N-1, ..., 1
+ * For N that is not a power of 2, some nodes combine a leaf with an inner node, or cover leaves
+ * that are not adjacent in the array, e.g. for N = 3
+ *  tree[3] = Arr_0, tree[4] = Arr_1, tree[5] = Arr_2
+ *  tree[2] = F(Arr_1, Arr_2), tree[1] = F(Arr_0, F(Arr_1, Arr_2)) = F(tree[2], tree[3])
+ * but the bottom-up query of SegmentTree only ever uses nodes whose leaves lie within the query
+ * range and on the same side of it, so the query stays correct: the left accumulator collects
+ * nodes from left to right, and the right accumulator from right to left, so func does not even
+ * need to be commutative.
+ *
+ * The nodes live in one block of native memory of 8 * N bytes, so the size is limited only by
+ * RAM, and not by -XX:MaxDirectMemorySize as direct ByteBuffers are. close() frees the block right
+ * away, e.g. with try-with-resources, and any access after close() throws IllegalStateException
+ * instead of reading freed memory. A tree that is never closed is freed by a Cleaner after the
+ * garbage collector finds it unreachable, so it does not leak for good, but the native memory
+ * does not make the collector run any sooner, so close() is the way to release it. The tree is
+ * not thread safe, in particular close() must not race with any other method.
+ *
+ * Java 17 has no public API that allocates native memory and frees it on demand (that is the
+ * Foreign Function and Memory API, final in Java 22), so the memory is allocated with
+ * sun.misc.Unsafe of the jdk.unsupported module. It is looked up at runtime and called through
+ * method handles, which the JIT inlines like direct calls, so nothing is compiled against the
+ * internal API.
+ */
+public class OffHeapSegmentTree implements AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final MethodHandle ALLOCATE;
+    private static final MethodHandle FREE;
+    private static final MethodHandle GET_INT;
+    private static final MethodHandle PUT_INT;
+
+    static {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            final Object unsafe = field.get(null);
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            ALLOCATE = lookup.findVirtual(unsafeClass, "allocateMemory", MethodType.methodType(long.class, long.class))
+                .bindTo(unsafe);
+            FREE = lookup.findVirtual(unsafeClass, "freeMemory", MethodType.methodType(void.class, long.class))
+                .bindTo(unsafe);
+            GET_INT = lookup.findVirtual(unsafeClass, "getInt", MethodType.methodType(int.class, long.class))
+                .bindTo(unsafe);
+            PUT_INT = lookup.findVirtual(unsafeClass, "putInt", MethodType.methodType(void.class, long.class, int.class))
+                .bindTo(unsafe);
+        } catch (final ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * The native memory of a tree, freed by run(), which the Cleaner calls at most once, either
+     * from close() or once the tree is unreachable. It must not refer to the tree.
+     */
+    private static final class Memory implements Runnable {
+        private final long address;
+
+        Memory(final long bytes) {
+            this.address = allocate(bytes);
+        }
+
+        @Override
+        public void run() {
+            free(address);
+        }
+    }
+
+    private final long n;
+    private final int zero;
+    private final IntBinaryOperator func;
+    private final Cleaner.Cleanable cleanable;
+    private long address;
+
+    /**
+     * Create a segment tree of n elements, element i is values.applyAsInt(i).
+     * Runtime complexity: O(N).
+     * @param n: number of elements
+     * @param zero: the zero value that satisfies func(zero, x) = func(x, zero) = x
+     * @param func: the query function, must be associative
+     * @param values: the initial value of each element
+     */
+    public OffHeapSegmentTree(
+            final long n,
+            final int zero,
+            final IntBinaryOperator func,
+            final LongToIntFunction values
+    ) {
+        if (n < 1 || n > Long.MAX_VALUE / 8) {
+            throw new IllegalArgumentException(String.format("Invalid size %d", n));
+        }
+        this.n = n;
+        this.zero = zero;
+        this.func = func;
+        final Memory memory = new Memory(8 * n);
+        this.address = memory.address;
+        this.cleanable = CLEANER.register(this, memory);
+        try {
+            for (long i = 0; i < n; i++) {
+                setNode(n + i, values.applyAsInt(i));
+            }
+            for (long i = n - 1; i > 0; i--) {
+                setNode(i, func.applyAsInt(node(2 * i), node(2 * i + 1)));
+            }
+        } catch (final RuntimeException | Error e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a segment tree of n elements, all set to zero.
+     */
+    public OffHeapSegmentTree(final long n, final int zero, final IntBinaryOperator func) {
+        this(n, zero, func, i -> zero);
+    }
+
+    /**
+     * Create a segment tree for the given array.
+     */
+    public OffHeapSegmentTree(final int[] array, final int zero, final IntBinaryOperator func) {
+        this(array.length, zero, func, i -> array[(int) i]);
+    }
+
+    private static long allocate(final long bytes) {
+        try {
+            return (long) ALLOCATE.invokeExact(bytes);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void free(final long address) {
+        try {
+            FREE.invokeExact(address);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private int node(final long node) {
+        try {
+            return (int) GET_INT.invokeExact(address + 4 * node);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private void setNode(final long node, final int val) {
+        try {
+            PUT_INT.invokeExact(address + 4 * node, val);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private void checkOpen() {
+        if (address == 0) {
+            throw new IllegalStateException("The tree has been closed.");
+        }
+    }
+
+    public long size() {
+        return n;
+    }
+
+    /**
+     * Query the given range [left, right] and return the result.
+     * Runtime complexity: O(log(N)).
+     * @param left: starting range (inclusive)
+     * @param right: ending range (inclusive)
+     * @return query result of applying func over the given range.
+     */
+    public int query(final long left, final long right) {
+        checkOpen();
+        if (left < 0 || right >= n || left > right) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid range, expected [0, %d) but got [%d, %d]", n, left, right));
+        }
+        // half open range [a, b) of nodes at the current level.
+        long a = left + n;
+        long b = right + n + 1;
+        int sl = zero;
+        int sr = zero;
+        while (a < b) {
+            if ((a & 1) == 1) {
+                sl = func.applyAsInt(sl, node(a));
+                a++;
+            }
+            if ((b & 1) == 1) {
+                b--;
+                sr = func.applyAsInt(node(b), sr);
+            }
+            a >>>= 1;
+            b >>>= 1;
+        }
+        return func.applyAsInt(sl, sr);
+    }
+
+    /**
+     * @return the value at the given index.
+     */
+    public int get(final long idx) {
+        checkOpen();
+        if (idx < 0 || idx >= n) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Expected index to be within range [0, %d), but got %d.", n, idx));
+        }
+        return node(n + idx);
+    }
+
+    /**
+     * Update the value at the given index.
+     * Runtime complexity: O(log(N)).
+     * @param idx: index of the original array.
+     * @param val: new value.
+     */
+    public void set(final long idx, final int val) {
+        checkOpen();
+        if (idx < 0 || idx >= n) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Expected index to be within range [0, %d), but got %d.", n, idx));
+        }
+        long k = idx + n;
+        setNode(k, val);
+        for (k >>>= 1; k > 0; k >>>= 1) {
+            setNode(k, func.applyAsInt(node(2 * k), node(2 * k + 1)));
+        }
+    }
+
+    /**
+     * Free the memory of the tree right away, calling close() more than once has no effect.
+     */
+    @Override
+    public void close() {
+        address = 0;
+        cleanable.clean();
+    }
+
+    public static void main(final String[] args) {
+        //                    0  1  2  3  4  5  6  7  8
+        final int[] array = { 5, 8, 6, 3, 2, 7, 2, 6, 10};
+        System.out.printf("Testing OffHeapSegmentTree against array: %s\n", Arrays.toString(array));
+        try (final OffHeapSegmentTree sumTree = new OffHeapSegmentTree(array, 0, Integer::sum);
+             final OffHeapSegmentTree minTree = new OffHeapSegmentTree(array, Integer.MAX_VALUE, Math::min);
+             // the first non-zero value of a range, which is associative but not commutative.
+             final OffHeapSegmentTree firstTree = new OffHeapSegmentTree(9, 0, (x, y) -> x != 0 ? x : y)) {
+            System.out.printf("rangeSum(0, 8) = %d, expected 49\n", sumTree.query(0, 8));
+            System.out.printf("rangeSum(1, 5) = %d, expected 26\n", sumTree.query(1, 5));
+            sumTree.set(0, 10);
+            System.out.printf("rangeSum(0, 8) = %d, expected 54 after set(0, 10)\n", sumTree.query(0, 8));
+            System.out.printf("rangeMin(0, 8) = %d, expected 2\n", minTree.query(0, 8));
+            System.out.printf("rangeMin(0, 3) = %d, expected 3\n", minTree.query(0, 3));
+            firstTree.set(2, 7);
+            firstTree.set(6, 4);
+            System.out.printf("first(0, 8) = %d, expected 7\n", firstTree.query(0, 8));
+            System.out.printf("first(3, 8) = %d, expected 4\n", firstTree.query(3, 8));
+            System.out.printf("first(7, 8) = %d, expected 0\n", firstTree.query(7, 8));
+        }
+
+        final long n = 10_000_003L;
+        final long start = System.nanoTime();
+        try (final OffHeapSegmentTree large = new OffHeapSegmentTree(n, Integer.MIN_VALUE, Math::max, i -> (int) (i % 1000))) {
+            System.out.printf("built %d elements, %d MB off-heap in %.1f ms\n",
+                    n, 8 * n >> 20, (System.nanoTime() - start) / 1e6);
+            large.set(n - 1, 5000);
+            System.out.printf("rangeMax(0, %d) = %d, expected 5000\n", n - 1, large.query(0, n - 1));
+            System.out.printf("rangeMax(0, %d) = %d, expected 999\n", n - 2, large.query(0, n - 2));
+            System.out.printf("rangeMax(1000, 1500) = %d, expected 500\n", large.query(1000, 1500));
+        }
+    }
+}
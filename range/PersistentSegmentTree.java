@@ -0,0 +1,203 @@
+import java.util.Arrays;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Persistent segment tree keeps every historical version of the array, so that a range
+ * query can be answered "as of update #v", with each update costing O(log(N)) time and
+ * memory instead of copying the whole tree.
+ *
+ * It uses path copying: updating index idx only changes the O(log(N)) nodes on the path
+ * from the root to the leaf of idx, so the new version creates copies of just those nodes,
+ * and the copies point to the untouched children of the previous version.
+ *
+ * e.g. updating index 2 of a tree over 4 elements:
+ *
+ *   version 0:        r0              version 1:       r1
+ *                   /    \                           /    \
+ *                 a0      b0      (shared with v0) a0      b1
+ *                /  \    /  \                             /  \
+ *               x0  x1  x2  x3          (shared with v0) x2'  x3
+ *
+ * Unlike SegmentTree, the nodes cannot be stored at fixed positions of an array, since
+ * a node can have several parents in different versions. To avoid creating one object
+ * per node, nodes are stored in a pool of parallel primitive arrays:
+ *   left[node], right[node]: index of the children of node, unused for leaves
+ *   value[node]: func over the range that node covers
+ * and roots[v] is the root node of version v. The pool grows geometrically as needed.
+ *
+ * Memory: 2*N nodes for the initial version and O(log(N)) nodes, i.e. 16 bytes each,
+ * for each update.
+ */
+public class PersistentSegmentTree {
+    private final int sz;
+    private final long zero;
+    private final LongBinaryOperator func;
+
+    private int[] left;
+    private int[] right;
+    private long[] value;
+    private int nodeCount;
+
+    private int[] roots;
+    private int versionCount;
+
+    /**
+     * Create a persistent segment tree whose version 0 is the given array.
+     * @param array: an array for doing the range query
+     * @param zero: the zero value that satisfies func(zero, x) = func(x, zero) = x
+     * @param func: the query function, must satisfies associative rule: func(x, func(y, z)) = func(func(x, y), z).
+     */
+    public PersistentSegmentTree(final long[] array, final long zero, final LongBinaryOperator func) {
+        if (array.length < 1) {
+            throw new IllegalArgumentException("Argument cannot be empty array.");
+        }
+        this.sz = array.length;
+        this.zero = zero;
+        this.func = func;
+        final int capacity = 2 * sz;
+        left = new int[capacity];
+        right = new int[capacity];
+        value = new long[capacity];
+        roots = new int[16];
+        roots[0] = build(array, 0, sz-1);
+        versionCount = 1;
+    }
+
+    public static PersistentSegmentTree sum(final long[] array) {
+        return new PersistentSegmentTree(array, 0, Long::sum);
+    }
+
+    /**
+     * @return number of versions, the latest version is versions() - 1.
+     */
+    public int versions() {
+        return versionCount;
+    }
+
+    /**
+     * Set array[idx] = val on top of the latest version.
+     * @return the new version number.
+     */
+    public int set(final int idx, final long val) {
+        return set(versionCount - 1, idx, val);
+    }
+
+    /**
+     * Set array[idx] = val on top of the given version, which does not have to be the
+     * latest one, i.e. the versions can form a tree.
+     * @return the new version number.
+     */
+    public int set(final int version, final int idx, final long val) {
+        checkVersion(version);
+        if (idx < 0 || idx >= sz) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Expected index to be within range [0, %d), but got %d.", sz, idx));
+        }
+        final int root = update(roots[version], 0, sz-1, idx, val);
+        if (versionCount == roots.length) {
+            roots = Arrays.copyOf(roots, roots.length * 2);
+        }
+        roots[versionCount] = root;
+        return versionCount++;
+    }
+
+    /**
+     * Query the given range [left, right] of the given version.
+     * @param version: version number, 0 is the array the tree was constructed with.
+     * @param left: starting range (inclusive)
+     * @param right: ending range (inclusive)
+     * @return query result of applying func over the given range.
+     */
+    public long query(final int version, final int left, final int right) {
+        checkVersion(version);
+        if (left < 0 || right >= sz || left > right) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid range, expected [0, %d) but got [%d, %d]", sz, left, right));
+        }
+        return query(roots[version], 0, sz-1, left, right);
+    }
+
+    private int build(final long[] array, final int lo, final int hi) {
+        if (lo == hi) {
+            return newNode(-1, -1, array[lo]);
+        }
+        final int mid = (lo + hi) >>> 1;
+        final int l = build(array, lo, mid);
+        final int r = build(array, mid+1, hi);
+        return newNode(l, r, func.applyAsLong(value[l], value[r]));
+    }
+
+    private int update(final int node, final int lo, final int hi, final int idx, final long val) {
+        if (lo == hi) {
+            return newNode(-1, -1, val);
+        }
+        final int mid = (lo + hi) >>> 1;
+        int l = left[node];
+        int r = right[node];
+        if (idx <= mid) {
+            l = update(l, lo, mid, idx, val);
+        } else {
+            r = update(r, mid+1, hi, idx, val);
+        }
+        return newNode(l, r, func.applyAsLong(value[l], value[r]));
+    }
+
+    private long query(final int node, final int lo, final int hi, final int a, final int b) {
+        if (a <= lo && hi <= b) {
+            return value[node];
+        }
+        final int mid = (lo + hi) >>> 1;
+        long s = zero;
+        if (a <= mid) {
+            s = query(left[node], lo, mid, a, b);
+        }
+        if (b > mid) {
+            s = func.applyAsLong(s, query(right[node], mid+1, hi, a, b));
+        }
+        return s;
+    }
+
+    private int newNode(final int l, final int r, final long val) {
+        if (nodeCount == value.length) {
+            final int capacity = value.length + (value.length >> 1) + 1;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            value = Arrays.copyOf(value, capacity);
+        }
+        left[nodeCount] = l;
+        right[nodeCount] = r;
+        value[nodeCount] = val;
+        return nodeCount++;
+    }
+
+    private void checkVersion(final int version) {
+        if (version < 0 || version >= versionCount) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid version, expected [0, %d) but got %d", versionCount, version));
+        }
+    }
+
+    public static void main(final String[] args) {
+        //                     0  1  2  3  4  5  6  7  8
+        final long[] array = { 5, 8, 6, 3, 2, 7, 2, 6, 10};
+        System.out.printf("Testing PersistentSegmentTree against array: %s\n", Arrays.toString(array));
+        final PersistentSegmentTree tree = PersistentSegmentTree.sum(array);
+
+        final int v1 = tree.set(0, 10);   // 10, 8, 6, 3, 2, 7, 2, 6, 10
+        final int v2 = tree.set(6, 1);    // 10, 8, 6, 3, 2, 7, 1, 6, 10
+        final int v3 = tree.set(0, 3, 0); //  5, 8, 6, 0, 2, 7, 2, 6, 10
+        System.out.printf("versions() = %d, expected 4\n", tree.versions());
+        System.out.printf("v0 rangeSum(0, 8) = %d, expected 49\n", tree.query(0, 0, 8));
+        System.out.printf("v1 rangeSum(0, 8) = %d, expected 54\n", tree.query(v1, 0, 8));
+        System.out.printf("v2 rangeSum(0, 8) = %d, expected 53\n", tree.query(v2, 0, 8));
+        System.out.printf("v2 rangeSum(5, 7) = %d, expected 14\n", tree.query(v2, 5, 7));
+        System.out.printf("v1 rangeSum(5, 7) = %d, expected 15\n", tree.query(v1, 5, 7));
+        System.out.printf("v3 rangeSum(0, 3) = %d, expected 19\n", tree.query(v3, 0, 3));
+        System.out.printf("v0 rangeSum(0, 3) = %d, expected 22\n", tree.query(0, 0, 3));
+
+        final PersistentSegmentTree maxTree = new PersistentSegmentTree(array, Long.MIN_VALUE, Math::max);
+        maxTree.set(8, 1);
+        System.out.printf("v0 rangeMax(0, 8) = %d, expected 10\n", maxTree.query(0, 0, 8));
+        System.out.printf("v1 rangeMax(0, 8) = %d, expected 8\n", maxTree.query(1, 0, 8));
+    }
+}
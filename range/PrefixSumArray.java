@@ -4,7 +4,7 @@
  *
  * It requires O(n) to build an array, and O(1) for answerign the range sum query.
  */
-public class PrefixSumArray {
+public class PrefixSumArray implements RangeQuery {
     final int[] prefixSum;
 
     public PrefixSumArray(int[] array) {
@@ -27,6 +27,16 @@ public class PrefixSumArray {
         return prefixSum[end] - (start > 0 ? prefixSum[start-1] : 0);
     }
 
+    @Override
+    public int query(final int left, final int right) {
+        return rangeSum(left, right);
+    }
+
+    @Override
+    public int size() {
+        return prefixSum.length;
+    }
+
     public static void main(final String[] args) {
         //             0  1  2  3  4  5  6  7
         int[] array = {1, 3, 8, 4, 6, 1, 3, 4};
@@ -1,17 +1,44 @@
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
  * PrefixSumMatrix uses the same idea as in PrefixSumArray by precomputing the
  * sums of range (0,0) - (i, j), and then answer the sum query of (r0, c0) - (r1, c1)
  * using the relation:
  *  sum(r0, c0, r1, c1) = sum(0, 0, r1, c1) - sum(0, 0, r0, c1) - sum (0, 0, r1, c0) + sum(0, 0, r0, c0)
- * 
+ *
  * This requires preprocessing time of O(n*m), and query time of O(1).
+ *
+ * The sums are stored as long in a single row-major array, so large matrices neither overflow
+ * nor pay for one array per row. The array is padded with a row and a column of zeros in front,
+ * i.e. it has (n + 1) * (m + 1) entries with
+ *  sumMatrix[(i + 1) * (m + 1) + (j + 1)] = sum(0, 0, i, j)
+ *  sumMatrix[0 * (m + 1) + j] = sumMatrix[i * (m + 1) + 0] = 0
+ * so that sum(0, 0, -1, j) and sum(0, 0, i, -1) are simply 0, and a query needs no branches for
+ * the r0 = 0 and c0 = 0 edge cases:
+ *  sum(r0, c0, r1, c1) = S[r1+1][c1+1] - S[r0][c1+1] - S[r1+1][c0] + S[r0][c0]
+ * getSums answers a whole batch of queries given as separate arrays of r0, c0, r1 and c1, which
+ * keeps the loop free of object accesses. The padding is only correct for valid rectangles, e.g.
+ * c1 = m would read the padding of the next row, so every rectangle is still checked.
+ *
+ * The sums are computed in two passes, since
+ *  sum(0, 0, i, j) = sum over rows 0..i of (sum of row r over columns 0..j)
+ * (1) replace every row by its prefix sums, each row is independent of the others.
+ * (2) replace every column by its prefix sums, each column is independent of the others.
+ * Both passes run in parallel on the ForkJoin common pool for large matrices. A column is strided
+ * in memory, so pass (2) does not walk one column at a time, instead the columns are split into
+ * tiles of TILE_WIDTH adjacent columns, and each tile is processed row by row, adding the previous
+ * row of the tile to the current one, so that every access is sequential and a tile's two rows
+ * stay in the cache.
  */
 public class PrefixSumMatrix {
+    private static final int TILE_WIDTH = 1024;
+    private static final long PARALLEL_MIN_SIZE = 1 << 16;
+
     private final int n;
     private final int m;
-    private final int[][] sumMatrix;
+    private final int stride;
+    private final long[] sumMatrix;
 
     public PrefixSumMatrix(final int[][] matrix) {
         if (matrix == null || matrix.length == 0 || matrix[0].length == 0) {
@@ -19,21 +46,63 @@ public class PrefixSumMatrix {
         }
         n = matrix.length;
         m = matrix[0].length;
-        sumMatrix = new int[n][m];
+        stride = m + 1;
+        sumMatrix = new long[checkedSize(n + 1, m + 1)];
         for (int i = 0; i < n; i++) {
-            sumMatrix[i] = Arrays.copyOf(matrix[i], m);
+            final int[] row = matrix[i];
+            final int base = (i + 1) * stride + 1;
+            for (int j = 0; j < m; j++) {
+                sumMatrix[base + j] = row[j];
+            }
         }
-        for (int i = 1; i < n; i++) {
-            sumMatrix[i][0] += sumMatrix[i-1][0];
+        prefixSumInPlace(sumMatrix, n + 1, m + 1);
+    }
+
+    /**
+     * @param values: the matrix in row-major order, i.e. cell (i, j) is values[i * cols + j]
+     * @param rows: number of rows
+     * @param cols: number of columns
+     */
+    public PrefixSumMatrix(final long[] values, final int rows, final int cols) {
+        if (rows < 1 || cols < 1 || (long) rows * cols != values.length) {
+            throw new IllegalArgumentException(
+                    String.format("Expected %d * %d values, but got %d.", rows, cols, values.length));
         }
-        for (int j = 1; j < m; j++) {
-            sumMatrix[0][j] += sumMatrix[0][j-1];
+        n = rows;
+        m = cols;
+        stride = m + 1;
+        sumMatrix = new long[checkedSize(n + 1, m + 1)];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(values, i * m, sumMatrix, (i + 1) * stride + 1, m);
         }
-        for (int i = 1; i < n; i++) {
-            for (int j = 1; j < m; j++) {
-                sumMatrix[i][j] += sumMatrix[i-1][j] + sumMatrix[i][j-1] - sumMatrix[i-1][j-1];
-            }
+        prefixSumInPlace(sumMatrix, n + 1, m + 1);
+    }
+
+    private PrefixSumMatrix(final int rows, final int cols, final long[] paddedSums) {
+        n = rows;
+        m = cols;
+        stride = m + 1;
+        sumMatrix = paddedSums;
+    }
+
+    /**
+     * Wrap an array that already holds the padded prefix sums of a rows * cols matrix,
+     * in the layout described above, without copying it.
+     */
+    static PrefixSumMatrix wrapPaddedSums(final long[] paddedSums, final int rows, final int cols) {
+        if ((long) (rows + 1) * (cols + 1) != paddedSums.length) {
+            throw new IllegalArgumentException(
+                    String.format("Expected %d * %d sums, but got %d.", rows + 1, cols + 1, paddedSums.length));
         }
+        return new PrefixSumMatrix(rows, cols, paddedSums);
+    }
+
+    public int rows() {
+        return n;
+    }
+
+    public int columns() {
+        return m;
     }
 
     /**
@@ -43,18 +112,88 @@ public class PrefixSumMatrix {
      * .             .
      * (r1, c0) .... (r1, c1)
      */
-    public int getSum(final int r0, final int c0, final int r1, final int c1) {
-        int v = sumMatrix[r1][c1];
-        if (r0 > 0) {
-            v -= sumMatrix[r0-1][c1];
+    public long getSum(final int r0, final int c0, final int r1, final int c1) {
+        checkRectangle(r0, c0, r1, c1);
+        final int top = r0 * stride;
+        final int bottom = (r1 + 1) * stride;
+        return sumMatrix[bottom + c1 + 1] - sumMatrix[top + c1 + 1] - sumMatrix[bottom + c0] + sumMatrix[top + c0];
+    }
+
+    /**
+     * Answer a batch of queries, out[k] = getSum(r0s[k], c0s[k], r1s[k], c1s[k]) for k in [0, count).
+     */
+    public void getSums(
+            final int[] r0s,
+            final int[] c0s,
+            final int[] r1s,
+            final int[] c1s,
+            final long[] out,
+            final int count
+    ) {
+        if (count > r0s.length || count > c0s.length || count > r1s.length || count > c1s.length || count > out.length) {
+            throw new IllegalArgumentException(
+                    String.format("Batch of %d queries does not fit in the given arrays.", count));
+        }
+        final long[] s = sumMatrix;
+        final int w = stride;
+        for (int k = 0; k < count; k++) {
+            checkRectangle(r0s[k], c0s[k], r1s[k], c1s[k]);
+            final int top = r0s[k] * w;
+            final int bottom = (r1s[k] + 1) * w;
+            final int left = c0s[k];
+            final int right = c1s[k] + 1;
+            out[k] = s[bottom + right] - s[top + right] - s[bottom + left] + s[top + left];
         }
-        if (c0 > 0) {
-            v -= sumMatrix[r1][c0-1];
+    }
+
+    private void checkRectangle(final int r0, final int c0, final int r1, final int c1) {
+        if (r0 < 0 || c0 < 0 || r1 >= n || c1 >= m || r0 > r1 || c0 > c1) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid rectangle (%d, %d) - (%d, %d) for matrix of %d * %d", r0, c0, r1, c1, n, m));
         }
-        if (r0 > 0 && c0 > 0) {
-            v += sumMatrix[r0-1][c0-1];
+    }
+
+    static int checkedSize(final int rows, final int cols) {
+        final long size = (long) rows * cols;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("Matrix of %d * %d is too large", rows, cols));
         }
-        return v;
+        return (int) size;
+    }
+
+    /**
+     * Replace the rows * cols row-major matrix a by its 2D prefix sums.
+     */
+    static void prefixSumInPlace(final long[] a, final int rows, final int cols) {
+        final boolean parallel = (long) rows * cols >= PARALLEL_MIN_SIZE;
+        // pass 1: prefix sum of each row.
+        IntStream rowPass = IntStream.range(0, rows);
+        if (parallel) {
+            rowPass = rowPass.parallel();
+        }
+        rowPass.forEach(i -> {
+            final int base = i * cols;
+            for (int j = 1; j < cols; j++) {
+                a[base + j] += a[base + j - 1];
+            }
+        });
+        // pass 2: prefix sum of each column, one tile of adjacent columns at a time.
+        final int tiles = (cols + TILE_WIDTH - 1) / TILE_WIDTH;
+        IntStream columnPass = IntStream.range(0, tiles);
+        if (parallel) {
+            columnPass = columnPass.parallel();
+        }
+        columnPass.forEach(t -> {
+            final int from = t * TILE_WIDTH;
+            final int to = Math.min(from + TILE_WIDTH, cols);
+            for (int i = 1; i < rows; i++) {
+                final int base = i * cols;
+                final int prev = base - cols;
+                for (int j = from; j < to; j++) {
+                    a[base + j] += a[prev + j];
+                }
+            }
+        });
     }
 
     public static void main(final String[] args) {
@@ -74,6 +213,31 @@ public class PrefixSumMatrix {
         System.out.printf("matrix(0, 0, 2, 0) = %d, expected 21.\n", sumMatrix.getSum(0, 0, 2, 0));
         System.out.printf("matrix(0, 0, 2, 5) = %d, expected 171.\n", sumMatrix.getSum(0, 0, 2, 5));
         System.out.printf("matrix(1, 3, 2, 5) = %d, expected 84.\n", sumMatrix.getSum(1, 3, 2, 5));
+
+        final int[] r0s = { 0, 0, 1, 2 };
+        final int[] c0s = { 0, 0, 3, 5 };
+        final int[] r1s = { 2, 0, 2, 2 };
+        final int[] c1s = { 5, 5, 5, 5 };
+        final long[] out = new long[r0s.length];
+        sumMatrix.getSums(r0s, c0s, r1s, c1s, out, r0s.length);
+        System.out.printf("getSums = %s, expected [171, 21, 84, 18].\n", Arrays.toString(out));
+        try {
+            sumMatrix.getSum(0, 0, 0, 6);
+            System.out.println("matrix(0, 0, 0, 6) did not throw.");
+        } catch (final IllegalArgumentException e) {
+            System.out.printf("matrix(0, 0, 0, 6) throws, as expected: %s\n", e.getMessage());
+        }
+
+        final int rows = 2000;
+        final int cols = 3000;
+        final long[] values = new long[rows * cols];
+        Arrays.fill(values, Integer.MAX_VALUE);
+        final long start = System.nanoTime();
+        final PrefixSumMatrix large = new PrefixSumMatrix(values, rows, cols);
+        System.out.printf("built %d * %d matrix in %.1f ms\n", rows, cols, (System.nanoTime() - start) / 1e6);
+        System.out.printf("matrix(0, 0, %d, %d) = %d, expected %d.\n", rows - 1, cols - 1,
+                large.getSum(0, 0, rows - 1, cols - 1), (long) Integer.MAX_VALUE * rows * cols);
+        System.out.printf("matrix(10, 20, 10, 21) = %d, expected %d.\n",
+                large.getSum(10, 20, 10, 21), 2L * Integer.MAX_VALUE);
     }
 }
-
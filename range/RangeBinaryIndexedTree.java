@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+/**
+ * RangeBinaryIndexedTree supports both range update and range sum query in O(log(N)),
+ * using two Binary Indexed Trees over the difference array (see DifferenceArray).
+ *
+ * Let d be the difference array of Arr, i.e. d_p = Arr_p - Arr_(p-1), so that
+ *   Arr_j = d_0 + ... + d_j
+ * then adding v to Arr_l, ..., Arr_r only changes two entries: d_l += v, d_(r+1) -= v.
+ * For the prefix sum:
+ *   sum(Arr_0, ..., Arr_i) = sum_{j<=i} sum_{p<=j} d_p
+ *                          = sum_{p<=i} d_p * (i - p + 1)
+ *                          = (i + 1) * sum_{p<=i} d_p - sum_{p<=i} d_p * p
+ * so we keep one tree of d_p and another of d_p * p, each point update of d touches
+ * both trees, and each prefix sum is computed from a prefix sum of both trees.
+ *
+ * The two trees are interleaved in a single array, tree[2*k] for d_p and tree[2*k+1] for
+ * d_p * p, so every step of an update or query reads both values from the same cache line.
+ */
+public class RangeBinaryIndexedTree {
+    private final int n;
+    private final long[] tree;
+
+    /**
+     * Constructs the tree based on the given array.
+     * Runtime complexity: O(N), N = array.length.
+     */
+    public RangeBinaryIndexedTree(final long[] array) {
+        n = array.length;
+        tree = new long[2 * (n + 1)];
+        for (int p = 0; p < n; p++) {
+            final long d = array[p] - (p > 0 ? array[p-1] : 0);
+            tree[2 * (p + 1)] = d;
+            tree[2 * (p + 1) + 1] = d * p;
+        }
+        for (int k = 1; k <= n; k++) {
+            final int parent = k + (k & -k);
+            if (parent <= n) {
+                tree[2 * parent] += tree[2 * k];
+                tree[2 * parent + 1] += tree[2 * k + 1];
+            }
+        }
+    }
+
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Add val to every element of array[start...end].
+     * Runtime complexity: O(log(N)).
+     */
+    public void rangeAdd(final int start, final int end, final long val) {
+        if (start < 0 || end >= n || start > end) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid range, expected [0, %d) but got [%d, %d]", n, start, end));
+        }
+        addDiff(start, val);
+        if (end + 1 < n) {
+            addDiff(end + 1, -val);
+        }
+    }
+
+    /**
+     * Add val to array[idx].
+     */
+    public void add(final int idx, final long val) {
+        rangeAdd(idx, idx, val);
+    }
+
+    /**
+     * @return sum of array[start...end].
+     * Runtime complexity: O(log(N)).
+     */
+    public long rangeSum(final int start, final int end) {
+        if (start < 0 || end >= n || start > end) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid range, expected [0, %d) but got [%d, %d]", n, start, end));
+        }
+        return prefixSum(end) - prefixSum(start - 1);
+    }
+
+    private void addDiff(final int p, final long d) {
+        final long dp = d * p;
+        for (int k = p + 1; k <= n; k += (k & -k)) {
+            tree[2 * k] += d;
+            tree[2 * k + 1] += dp;
+        }
+    }
+
+    private long prefixSum(final int i) {
+        long sumD = 0;
+        long sumDP = 0;
+        for (int k = i + 1; k > 0; k -= (k & -k)) {
+            sumD += tree[2 * k];
+            sumDP += tree[2 * k + 1];
+        }
+        return (i + 1) * sumD - sumDP;
+    }
+
+    public static void main(final String[] args) {
+        //                     0, 1, 2, 3, 4, 5, 6, 7, 8
+        final long[] array = { 1, 3, 4, 8, 6, 1, 4, 2, 3};
+        final RangeBinaryIndexedTree indexedTree = new RangeBinaryIndexedTree(array);
+
+        System.out.printf("Testing RangeBinaryIndexedTree against array: %s\n", Arrays.toString(array));
+        System.out.printf("rangeSum(0, 0) = %d, expected 1\n", indexedTree.rangeSum(0, 0));
+        System.out.printf("rangeSum(3, 3) = %d, expected 8\n", indexedTree.rangeSum(3, 3));
+        System.out.printf("rangeSum(0, 8) = %d, expected 32\n", indexedTree.rangeSum(0, 8));
+        System.out.printf("rangeSum(2, 5) = %d, expected 19\n", indexedTree.rangeSum(2, 5));
+
+        System.out.println("add 10 to array[2...6], add -1 to array[8]");
+        indexedTree.rangeAdd(2, 6, 10);
+        indexedTree.add(8, -1);
+        // 1, 3, 14, 18, 16, 11, 14, 2, 2
+        System.out.printf("rangeSum(0, 8) = %d, expected 81\n", indexedTree.rangeSum(0, 8));
+        System.out.printf("rangeSum(2, 5) = %d, expected 59\n", indexedTree.rangeSum(2, 5));
+        System.out.printf("rangeSum(6, 8) = %d, expected 18\n", indexedTree.rangeSum(6, 8));
+        System.out.printf("rangeSum(1, 1) = %d, expected 3\n", indexedTree.rangeSum(1, 1));
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * RangeQuery is the common interface of the structures that answer func(array[left...right])
+ * over an int array, e.g. PrefixSumArray, SparseTable, SegmentTree and BinaryIndexedTree, so that
+ * the engine can be chosen, or swapped, without changing the code that queries it.
+ */
+public interface RangeQuery {
+    /**
+     * @return func(array[left...right]).
+     */
+    int query(int left, int right);
+
+    /**
+     * @return number of elements in the array.
+     */
+    int size();
+}
@@ -78,8 +78,11 @@ import java.util.function.BiFunction;
  *
  *  Note that the query function must be associative, i.e. F(x, F(y, z)) = F(F(x, y), z)
  *    because when calculating the value, do not guarentee only use one order of application.
+ *
+ *  See IntSegmentTree, LongSegmentTree and DoubleSegmentTree for versions that take primitive
+ *  operators and therefore do not box on every function application.
  */
-public class SegmentTree {
+public class SegmentTree implements MutableRangeQuery {
     private final int sz;
     private final int n;
     private final int[] tree;
@@ -110,7 +113,6 @@ public class SegmentTree {
         for (int i = n-1; i > 0; i--) {
             tree[i] = func.apply(tree[2*i], tree[2*i+1]); 
         }
-        System.out.println(Arrays.toString(tree));
     }
 
     /**
@@ -119,6 +121,7 @@ public class SegmentTree {
      * @param right: ending range (inclusive)
      * @return query result of applying func over the given range.
      */
+    @Override
     public int query(final int left, final int right) {
         if (left < 0 || right >= sz || left > right) {
             throw new IllegalArgumentException(
@@ -154,11 +157,23 @@ public class SegmentTree {
         return s;
     }
 
+    /**
+     * Answer a batch of range queries at once, i.e. out[i] = query(lefts[i], rights[i]), on the
+     * ForkJoin common pool for large batches, see BatchQueries.
+     * @param lefts: starting indices (inclusive)
+     * @param rights: ending indices (inclusive)
+     * @param out: buffer receiving the results, must hold at least lefts.length entries
+     */
+    public void queryAll(final int[] lefts, final int[] rights, final int[] out) {
+        BatchQueries.queryAll(this, lefts, rights, out);
+    }
+
     /**
      * Update the value at the given index.
      * @param idx: index of the original array.
      * @param val: new value.
      */
+    @Override
     public void set(final int idx, final int val) {
         if (idx < 0 || idx >= sz) {
             throw new IndexOutOfBoundsException(
@@ -171,6 +186,11 @@ public class SegmentTree {
         }
     }
 
+    @Override
+    public int size() {
+        return sz;
+    }
+
     private static int getNextPowerOf2(int n) {
         if (n < 1) {
             throw new IllegalArgumentException(
@@ -229,6 +249,11 @@ public class SegmentTree {
         System.out.printf("rangeMin(6, 6) = %d, expected 1\n", minTree.query(6, 6));
         System.out.printf("rangeMin(0, 8) = %d, expected 0\n", minTree.query(0, 8));
         System.out.printf("rangeMin(1, 5) = %d, expected 2\n", minTree.query(1, 5));
+
+        final int[] lefts = { 0, 6, 1, 8 };
+        final int[] rights = { 0, 6, 5, 8 };
+        final int[] out = new int[lefts.length];
+        minTree.queryAll(lefts, rights, out);
+        System.out.printf("queryAll = %s, expected [0, 1, 2, 10]\n", Arrays.toString(out));
     }
 }
-
@@ -1,5 +1,7 @@
-import java.util.function.BiFunction;
 import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
 
 /**
  * Sparse Table is a data structure for efficently solving the range query problem
@@ -67,14 +69,96 @@ import java.util.Arrays;
  * Examples of such queries include: maximum value, minimum value, sum, greatest common divisor, etc,
  * of a given range in the array.
  *
+ * If F is also idempotent, i.e. F(x, x) = x, as is the case for min, max and gcd, then it does not
+ * matter if an element is counted twice, and any query can be answered in O(1) using just two
+ * overlapping ranges of the same size 2^j, where 2^j is the largest power of 2 not greater than
+ * the length of the range:
+ *  F(Arr_L, ..., Arr_R) = F(table[L][j], table[R - 2^j + 1][j]), where j = floor(log2(R - L + 1))
+ * e.g.
+ *   min(Arr_i, ..., Arr_(i+12)) = min(table[i][3], table[i+5][3])
+ *   i.e. min of [i, i+7] and [i+5, i+12].
+ * The idempotent mode is used by the built-in Operator MIN, MAX and GCD, or when it is declared
+ * by the caller. floor(log2(x)) is computed by 31 - Integer.numberOfLeadingZeros(x), a single
+ * instruction on modern CPUs, so no log table is needed. For non-idempotent functions such as sum,
+ * see DisjointSparseTable for O(1) queries.
+ *
+ * Memory layout: rather than one small array per index i, the table is stored level by level in a
+ * single int array, and only the n - 2^j + 1 valid entries of each level j are kept:
+ *   table[i][j] is located at table[levelStart[j] + i]
+ *   levelStart[0] = 0, levelStart[j+1] = levelStart[j] + n - 2^j + 1
+ * so a level is a contiguous run of memory, building a level is a sequential scan over the previous
+ * level, and the entries of a level are independent of each other, so they are computed in parallel
+ * on the ForkJoin common pool for large arrays. See MappedSparseTable for storing this layout in a
+ * file and querying it through a memory mapping.
+ *
  * Ref: https://www.hackerearth.com/ja/practice/notes/sparse-table/
  */
-public class SparseTable {
-    private final int k;
-    private final int n;
-    private final int[][] table;
+public class SparseTable implements RangeQuery {
+    private static final int PARALLEL_BUILD_MIN_SIZE = 1 << 16;
+    private static final long MAX_TABLE_SIZE = Integer.MAX_VALUE - 8;
+
+    final int k;
+    final int n;
+    final int[] table;
+    final int[] levelStart;
     private final int zero;
-    private final BiFunction<Integer, Integer, Integer> func;
+    private final IntBinaryOperator func;
+    private final boolean idempotent;
+    // the built-in operator used by this table, or null for a custom function.
+    final Operator operator;
+
+    /**
+     * Built-in query functions, these do not box their arguments, and MIN, MAX and GCD
+     * are answered in O(1) using the idempotent mode.
+     */
+    public enum Operator implements IntBinaryOperator {
+        SUM(0, false) {
+            @Override
+            public int applyAsInt(final int x, final int y) {
+                return x + y;
+            }
+        },
+        MIN(Integer.MAX_VALUE, true) {
+            @Override
+            public int applyAsInt(final int x, final int y) {
+                return Math.min(x, y);
+            }
+        },
+        MAX(Integer.MIN_VALUE, true) {
+            @Override
+            public int applyAsInt(final int x, final int y) {
+                return Math.max(x, y);
+            }
+        },
+        /** gcd of non-negative integers. */
+        GCD(0, true) {
+            @Override
+            public int applyAsInt(int x, int y) {
+                while (y != 0) {
+                    final int t = x % y;
+                    x = y;
+                    y = t;
+                }
+                return x;
+            }
+        };
+
+        private final int zero;
+        private final boolean idempotent;
+
+        Operator(final int zero, final boolean idempotent) {
+            this.zero = zero;
+            this.idempotent = idempotent;
+        }
+
+        public int zero() {
+            return zero;
+        }
+
+        public boolean isIdempotent() {
+            return idempotent;
+        }
+    }
 
     /**
      * Constructs a SpareTable that can be used to answer the range query of func(array[left...right]).
@@ -86,23 +170,81 @@ public class SparseTable {
             final int[] array, 
             final int zero, 
             final BiFunction<Integer, Integer, Integer> func
+    ) {
+        this(array, zero, (IntBinaryOperator) (x, y) -> func.apply(x, y), false);
+    }
+
+    /**
+     * Constructs a SpareTable for one of the built-in operators.
+     * @param array: an immutable array of querying
+     * @param op: the query function
+     */
+    public SparseTable(final int[] array, final Operator op) {
+        this(array, op.zero(), op, op.isIdempotent(), op);
+    }
+
+    /**
+     * Constructs a SpareTable that can be used to answer the range query of func(array[left...right]).
+     * @param array: an immutable array of querying
+     * @param zero: the value that satisifies func(x, zero) = x.
+     * @param func: the query function, which must be associative, i.e. func(x, func(y, z)) = func(func(x, y), z)
+     * @param idempotent: true if func(x, x) = x, which allows queries to be answered in O(1).
+     */
+    public SparseTable(
+            final int[] array,
+            final int zero,
+            final IntBinaryOperator func,
+            final boolean idempotent
+    ) {
+        this(array, zero, func, idempotent, null);
+    }
+
+    private SparseTable(
+            final int[] array,
+            final int zero,
+            final IntBinaryOperator func,
+            final boolean idempotent,
+            final Operator operator
     ) {
         n = array.length;
         k = largestPowerOf2NotGreaterThanN(n);
         this.zero = zero;
         this.func = func;
+        this.idempotent = idempotent;
+        this.operator = operator;
 
-        table = new int[n][k+1];
-        for (int i = 0; i < n; i++) {
-            table[i][0] = array[i]; // F(Arr_i) = F(Arr_i, zero) = Arr_i.
-        }
         // table[i][j] = Func(Arr_i,..., Arr_(i + 2^j - 1))
         // i + 2^j - 1 < n
         // i + (1 << j) - 1 < n
         // i + (1 << j) <= n
-        for (int j = 1; j <= k; j++) { // n < 2 ^ (k+1)
-            for (int i = 0; i + (1 << j) <= n; i++) {                  
-                table[i][j] = func.apply(table[i][j-1], table[i + (1 << (j - 1))][j-1]);
+        // so level j has n - 2^j + 1 entries.
+        long total = 0;
+        for (int j = 0; j <= k; j++) { // n < 2 ^ (k+1)
+            total += n - (1 << j) + 1;
+        }
+        if (total > MAX_TABLE_SIZE) {
+            throw new IllegalArgumentException(
+                    String.format("Array of length %d needs %d table entries, more than an int[] can hold.", n, total));
+        }
+        levelStart = new int[k+1];
+        for (int j = 1; j <= k; j++) {
+            levelStart[j] = levelStart[j-1] + n - (1 << (j-1)) + 1;
+        }
+        table = new int[(int) total];
+        System.arraycopy(array, 0, table, 0, n); // F(Arr_i) = F(Arr_i, zero) = Arr_i.
+        for (int j = 1; j <= k; j++) {
+            final int prev = levelStart[j-1];
+            final int cur = levelStart[j];
+            final int half = 1 << (j - 1);
+            final int len = n - (1 << j) + 1;
+            if (len < PARALLEL_BUILD_MIN_SIZE) {
+                for (int i = 0; i < len; i++) {
+                    table[cur + i] = func.applyAsInt(table[prev + i], table[prev + i + half]);
+                }
+            } else {
+                // entries of the same level only depend on the previous level.
+                IntStream.range(0, len).parallel().forEach(
+                        i -> table[cur + i] = func.applyAsInt(table[prev + i], table[prev + i + half]));
             }
         }
     }
@@ -113,6 +255,7 @@ public class SparseTable {
      * @param end: ending index
      * @return func(array[start...end])
      */
+    @Override
     public int query(final int start, final int end) {
         if (start > end) {
             throw new IllegalArgumentException(String.format("Invalid range, expected start <= end, but got [%d, %d]", start, end));
@@ -120,12 +263,17 @@ public class SparseTable {
         if (start < 0 || end >= n) {
             throw new IllegalArgumentException(String.format("Invalid range, expected [0, %d], but got [%d, %d].", n, start, end));
         }
+        if (idempotent) {
+            // two possibly overlapping ranges [start, start + 2^j - 1] and [end - 2^j + 1, end].
+            final int j = 31 - Integer.numberOfLeadingZeros(end - start + 1);
+            return func.applyAsInt(table[levelStart[j] + start], table[levelStart[j] + end - (1 << j) + 1]);
+        }
         int result = zero;
         int m = start;
         for (int i = k; i >= 0; i--) {
             if (m + (1 << i) - 1 <= end) {
                 // table[m][i] = Func(Arr_m, ..., Arr_(m + 2^i - 1))
-                result = func.apply(result, table[m][i]);
+                result = func.applyAsInt(result, table[levelStart[i] + m]);
                 // next section is Arr_(m + 2^i), ..., Arr_R)]
                 m += (1 << i);
             }
@@ -133,7 +281,23 @@ public class SparseTable {
         return result;
     }
 
-    private static int largestPowerOf2NotGreaterThanN(final int n) {
+    @Override
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Answer a batch of range queries at once, i.e. out[i] = query(lefts[i], rights[i]), on the
+     * ForkJoin common pool for large batches, see BatchQueries.
+     * @param lefts: starting indices (inclusive)
+     * @param rights: ending indices (inclusive)
+     * @param out: buffer receiving the results, must hold at least lefts.length entries
+     */
+    public void queryAll(final int[] lefts, final int[] rights, final int[] out) {
+        BatchQueries.queryAll(this, lefts, rights, out);
+    }
+
+    static int largestPowerOf2NotGreaterThanN(final int n) {
         if (n < 1) {
             throw new IllegalArgumentException(
                     String.format("parameter must be greater than 1, but got: %d.", n));
@@ -185,6 +349,25 @@ public class SparseTable {
         System.out.printf("max(0, 7) = %d, expected 8\n", rangeMaxTable.query(0, 7));
         System.out.printf("sum(7, 8) = %d, expected 5\n", rangeMaxTable.query(7, 8));
         System.out.printf("max(3, 5) = %d, expected 6\n", rangeMaxTable.query(3, 5));
+
+        System.out.printf("Testing idempotent query with built-in operators, for array: %s\n", Arrays.toString(array));
+        final SparseTable minTable = new SparseTable(array, Operator.MIN);
+        System.out.printf("min(0, 8) = %d, expected 1\n", minTable.query(0, 8));
+        System.out.printf("min(2, 4) = %d, expected 4\n", minTable.query(2, 4));
+        System.out.printf("min(6, 8) = %d, expected 3\n", minTable.query(6, 8));
+        final SparseTable maxTable = new SparseTable(array, Operator.MAX);
+        System.out.printf("max(3, 8) = %d, expected 6\n", maxTable.query(3, 8));
+        System.out.printf("max(5, 5) = %d, expected 1\n", maxTable.query(5, 5));
+        final SparseTable gcdTable = new SparseTable(new int[]{12, 18, 24, 9, 30}, Operator.GCD);
+        System.out.printf("gcd(0, 2) = %d, expected 6\n", gcdTable.query(0, 2));
+        System.out.printf("gcd(1, 4) = %d, expected 3\n", gcdTable.query(1, 4));
+        final SparseTable declaredMaxTable = new SparseTable(array, Integer.MIN_VALUE, (x, y) -> Math.max(x, y), true);
+        System.out.printf("max(0, 1) = %d, expected 3\n", declaredMaxTable.query(0, 1));
+
+        final int[] lefts = { 0, 7, 2, 3 };
+        final int[] rights = { 0, 8, 2, 5 };
+        final int[] out = new int[lefts.length];
+        rangeMaxTable.queryAll(lefts, rights, out);
+        System.out.printf("queryAll = %s, expected [1, 5, 8, 6]\n", Arrays.toString(out));
     }
 }
-
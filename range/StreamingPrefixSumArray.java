@@ -0,0 +1,117 @@
+/**
+ * StreamingPrefixSumArray is an append-only PrefixSumArray over an unbounded stream of samples,
+ * which answers range sums over the last capacity samples in O(1).
+ *
+ * Samples are addressed by their absolute position in the stream, i.e. the first appended sample
+ * is 0, the next one 1 and so on, so a caller can keep using the same coordinates while old
+ * samples fall out of the window. Only the prefix sums of the window are kept, in a ring buffer:
+ *  sums[t % size] = P(t) = sum of samples [base, t) for t in [count - capacity, count]
+ * where count is the number of samples appended so far, and
+ *  rangeSum(start, end) = P(end + 1) - P(start)
+ * which does not depend on base. The ring buffer size is a power of 2 larger than capacity, so
+ * t % size is a mask.
+ *
+ * Without rebasing P(t) would grow with the whole stream and eventually overflow, so after every
+ * capacity appends, the oldest retained prefix sum is subtracted from all retained ones, i.e. base
+ * moves to the start of the window. This takes O(capacity) once per capacity appends, so append
+ * is O(1) amortized, and the retained sums never exceed the sum of the last 2 * capacity samples.
+ */
+public class StreamingPrefixSumArray {
+    private final int capacity;
+    private final int mask;
+    private final long[] sums;
+    private long count;
+
+    /**
+     * @param capacity: number of most recent samples that can be queried
+     */
+    public StreamingPrefixSumArray(final int capacity) {
+        if (capacity < 1 || capacity > (1 << 30) - 1) {
+            throw new IllegalArgumentException(String.format("Invalid capacity %d", capacity));
+        }
+        this.capacity = capacity;
+        final int size = Integer.highestOneBit(capacity) << 1;
+        this.mask = size - 1;
+        this.sums = new long[size];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of samples appended so far, i.e. the position of the next sample.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return position of the oldest sample that can still be queried.
+     */
+    public long oldest() {
+        return Math.max(0, count - capacity);
+    }
+
+    /**
+     * Append a sample at position count().
+     * Runtime complexity: O(1) amortized.
+     */
+    public void append(final long value) {
+        sums[(int) ((count + 1) & mask)] = sums[(int) (count & mask)] + value;
+        count++;
+        if (count % capacity == 0) {
+            rebase();
+        }
+    }
+
+    // subtract P(oldest) from all retained sums, so that P(oldest) becomes 0.
+    private void rebase() {
+        final long first = oldest();
+        final long offset = sums[(int) (first & mask)];
+        for (long t = first; t <= count; t++) {
+            sums[(int) (t & mask)] -= offset;
+        }
+    }
+
+    /**
+     * @return sum of the samples at positions [start, end].
+     * Runtime complexity: O(1).
+     */
+    public long rangeSum(final long start, final long end) {
+        if (start < oldest() || end >= count || start > end) {
+            throw new IllegalArgumentException(String.format(
+                        "Given range [%d, %d] is invalid, should be within [%d, %d]", start, end, oldest(), count - 1));
+        }
+        return sums[(int) ((end + 1) & mask)] - sums[(int) (start & mask)];
+    }
+
+    /**
+     * @return sum of the last k samples.
+     */
+    public long sumOfLast(final int k) {
+        return rangeSum(count - k, count - 1);
+    }
+
+    public static void main(final String[] args) {
+        final StreamingPrefixSumArray stream = new StreamingPrefixSumArray(4);
+        //                    0  1  2  3  4  5  6  7
+        final int[] array = {1, 3, 8, 4, 6, 1, 3, 4};
+        for (final int v : array) {
+            stream.append(v);
+        }
+        System.out.printf("oldest = %d, expected 4\n", stream.oldest());
+        System.out.printf("rangeSum(4, 7) = %d, expected 14\n", stream.rangeSum(4, 7));
+        System.out.printf("rangeSum(5, 6) = %d, expected 4\n", stream.rangeSum(5, 6));
+        System.out.printf("sumOfLast(2) = %d, expected 7\n", stream.sumOfLast(2));
+
+        System.out.println("append 10 million samples of Long.MAX_VALUE / 8");
+        final StreamingPrefixSumArray large = new StreamingPrefixSumArray(6);
+        for (int i = 0; i < 10_000_000; i++) {
+            large.append(Long.MAX_VALUE / 8);
+        }
+        System.out.printf("sumOfLast(6) = %d, expected %d\n", large.sumOfLast(6), Long.MAX_VALUE / 8 * 6);
+        System.out.printf("rangeSum(9999999, 9999999) = %d, expected %d\n",
+                large.rangeSum(9_999_999, 9_999_999), Long.MAX_VALUE / 8);
+    }
+}
@@ -0,0 +1,247 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * WaveletMatrix answers order statistics over ranges of a fixed array:
+ * (1) kthSmallest(l, r, k): the k-th smallest value in array[l...r]
+ * (2) rankLess(l, r, x): the number of values less than x in array[l...r]
+ * both in O(log(S)), where S is the number of distinct values in the array.
+ *
+ * The values are first replaced by their rank among the distinct values, i.e. codes in [0, S),
+ * each with L = ceil(log2(S)) bits. Level 0 stores the highest bit of every code, then the codes
+ * are stably partitioned by that bit, the ones with a 0 bit first, and level 1 stores the next
+ * bit of the codes in that order, and so on. So within each level, the codes of any range that
+ * agree on the higher bits are contiguous, and a range [l, r) at one level maps to
+ *  [rank0(l), rank0(r)) if we follow the codes with a 0 bit, or
+ *  [zeros + rank1(l), zeros + rank1(r)) if we follow the codes with a 1 bit
+ * at the next level, where rank0(i) / rank1(i) count the 0 / 1 bits before position i, and zeros
+ * is the number of 0 bits of the level. Both queries walk down the levels, choosing one side at
+ * each level, like a binary search over the values.
+ *
+ * Each level is a bit vector packed into longs, with a rank directory holding the number of 1 bits
+ * before each word, so rank is one array read plus a bitCount. This takes N * L * 1.5 bits in
+ * total, compared to N * log(N) ints for a merge sort tree.
+ *
+ * The position of a code at the next level only depends on its bit and on the rank directory, so
+ * every level is built in parallel: first the words of the level, then the directory by a prefix
+ * sum over the words, then the codes are scattered to their positions at the next level.
+ */
+public class WaveletMatrix {
+    private static final int PARALLEL_BUILD_MIN_SIZE = 1 << 16;
+
+    private final int n;
+    // number of bits per code.
+    private final int levels;
+    private final int wordsPerLevel;
+    // the distinct values in increasing order, code c stands for alphabet[c].
+    private final int[] alphabet;
+    // level h is bits[h * wordsPerLevel, (h + 1) * wordsPerLevel).
+    private final long[] bits;
+    // ranks[h * wordsPerLevel + w] = number of 1 bits in words [0, w) of level h.
+    private final int[] ranks;
+    private final int[] zeros;
+
+    public WaveletMatrix(final int[] array) {
+        if (array == null || array.length == 0) {
+            throw new IllegalArgumentException("Argument cannot be empty array.");
+        }
+        n = array.length;
+        final boolean parallel = n >= PARALLEL_BUILD_MIN_SIZE;
+        final int[] sorted = array.clone();
+        if (parallel) {
+            Arrays.parallelSort(sorted);
+        } else {
+            Arrays.sort(sorted);
+        }
+        int distinct = 1;
+        for (int i = 1; i < n; i++) {
+            if (sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        alphabet = Arrays.copyOf(sorted, distinct);
+        levels = Math.max(1, 32 - Integer.numberOfLeadingZeros(distinct - 1));
+        // one extra word, so that rank(n) never reads past the level.
+        wordsPerLevel = (n >>> 6) + 1;
+        if ((long) levels * wordsPerLevel > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("Array of %d elements is too large", n));
+        }
+        bits = new long[levels * wordsPerLevel];
+        ranks = new int[levels * wordsPerLevel];
+        zeros = new int[levels];
+
+        final int[] initial = new int[n];
+        range(n, parallel).forEach(i -> initial[i] = Arrays.binarySearch(alphabet, array[i]));
+        int[] codes = initial;
+        int[] next = new int[n];
+        for (int h = 0; h < levels; h++) {
+            final int shift = levels - 1 - h;
+            final int base = h * wordsPerLevel;
+            final int[] current = codes;
+            final int[] target = next;
+            range(wordsPerLevel, parallel).forEach(w -> {
+                final int from = w << 6;
+                final int to = Math.min(from + 64, n);
+                long word = 0;
+                for (int i = from; i < to; i++) {
+                    word |= (long) ((current[i] >>> shift) & 1) << (i - from);
+                }
+                bits[base + w] = word;
+            });
+            int ones = 0;
+            for (int w = 0; w < wordsPerLevel; w++) {
+                ranks[base + w] = ones;
+                ones += Long.bitCount(bits[base + w]);
+            }
+            final int levelZeros = n - ones;
+            zeros[h] = levelZeros;
+            range(wordsPerLevel, parallel).forEach(w -> {
+                final int from = w << 6;
+                final int to = Math.min(from + 64, n);
+                int rank1 = ranks[base + w];
+                for (int i = from; i < to; i++) {
+                    if (((current[i] >>> shift) & 1) == 0) {
+                        target[i - rank1] = current[i];
+                    } else {
+                        target[levelZeros + rank1] = current[i];
+                        rank1++;
+                    }
+                }
+            });
+            next = codes;
+            codes = target;
+        }
+    }
+
+    private static IntStream range(final int size, final boolean parallel) {
+        final IntStream stream = IntStream.range(0, size);
+        return parallel ? stream.parallel() : stream;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    // number of 1 bits before position i at level h.
+    private int rank1(final int h, final int i) {
+        final int w = h * wordsPerLevel + (i >>> 6);
+        return ranks[w] + Long.bitCount(bits[w] & ((1L << i) - 1));
+    }
+
+    private void checkRange(final int l, final int r) {
+        if (l < 0 || r >= n || l > r) {
+            throw new IllegalArgumentException(String.format(
+                        "Given range [%d, %d] is invalid, should be within [0, %d]", l, r, n - 1));
+        }
+    }
+
+    /**
+     * @return the k-th smallest value (0-based) in array[l...r].
+     * Runtime complexity: O(log(S)).
+     */
+    public int kthSmallest(final int l, final int r, int k) {
+        checkRange(l, r);
+        if (k < 0 || k > r - l) {
+            throw new IllegalArgumentException(String.format("Expected k within [0, %d], but got %d", r - l, k));
+        }
+        int from = l;
+        int to = r + 1;
+        int code = 0;
+        for (int h = 0; h < levels; h++) {
+            final int onesFrom = rank1(h, from);
+            final int onesTo = rank1(h, to);
+            final int zerosInRange = (to - from) - (onesTo - onesFrom);
+            if (k < zerosInRange) {
+                from -= onesFrom;
+                to -= onesTo;
+            } else {
+                k -= zerosInRange;
+                code |= 1 << (levels - 1 - h);
+                from = zeros[h] + onesFrom;
+                to = zeros[h] + onesTo;
+            }
+        }
+        return alphabet[code];
+    }
+
+    /**
+     * @return the number of values less than x in array[l...r].
+     * Runtime complexity: O(log(S)).
+     */
+    public int rankLess(final int l, final int r, final int x) {
+        checkRange(l, r);
+        // codes below this one are exactly the values less than x.
+        int code = Arrays.binarySearch(alphabet, x);
+        if (code < 0) {
+            code = -code - 1;
+        }
+        if (code >= (1 << levels)) {
+            return r - l + 1;
+        }
+        int from = l;
+        int to = r + 1;
+        int count = 0;
+        for (int h = 0; h < levels; h++) {
+            final int onesFrom = rank1(h, from);
+            final int onesTo = rank1(h, to);
+            if (((code >>> (levels - 1 - h)) & 1) == 0) {
+                from -= onesFrom;
+                to -= onesTo;
+            } else {
+                count += (to - from) - (onesTo - onesFrom);
+                from = zeros[h] + onesFrom;
+                to = zeros[h] + onesTo;
+            }
+        }
+        return count;
+    }
+
+    public static void main(final String[] args) {
+        //                    0  1  2   3  4  5  6  7  8
+        final int[] array = { 5, 1, 4, -2, 8, 1, 7, 3, 6};
+        final WaveletMatrix wavelet = new WaveletMatrix(array);
+        System.out.printf("Testing WaveletMatrix against array: %s\n", Arrays.toString(array));
+        System.out.printf("kthSmallest(0, 8, 0) = %d, expected -2\n", wavelet.kthSmallest(0, 8, 0));
+        System.out.printf("kthSmallest(0, 8, 8) = %d, expected 8\n", wavelet.kthSmallest(0, 8, 8));
+        System.out.printf("kthSmallest(1, 5, 2) = %d, expected 1\n", wavelet.kthSmallest(1, 5, 2));
+        System.out.printf("kthSmallest(4, 8, 2) = %d, expected 6\n", wavelet.kthSmallest(4, 8, 2));
+        System.out.printf("rankLess(0, 8, 5) = %d, expected 5\n", wavelet.rankLess(0, 8, 5));
+        System.out.printf("rankLess(2, 6, 2) = %d, expected 2\n", wavelet.rankLess(2, 6, 2));
+        System.out.printf("rankLess(2, 6, 100) = %d, expected 5\n", wavelet.rankLess(2, 6, 100));
+        System.out.printf("rankLess(2, 6, -5) = %d, expected 0\n", wavelet.rankLess(2, 6, -5));
+
+        final int n = 1 << 20;
+        final int q = 1 << 16;
+        final Random random = new Random(42);
+        final int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextInt();
+        }
+        long start = System.nanoTime();
+        final WaveletMatrix large = new WaveletMatrix(values);
+        System.out.printf("built over %d elements in %.1f ms\n", n, (System.nanoTime() - start) / 1e6);
+        final int[] ls = new int[q];
+        final int[] rs = new int[q];
+        for (int k = 0; k < q; k++) {
+            ls[k] = random.nextInt(n - 1000);
+            rs[k] = ls[k] + 999;
+        }
+        start = System.nanoTime();
+        long sink = 0;
+        for (int k = 0; k < q; k++) {
+            sink += large.kthSmallest(ls[k], rs[k], 500);
+        }
+        final double waveletMs = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        long expected = 0;
+        for (int k = 0; k < q; k++) {
+            final int[] copy = Arrays.copyOfRange(values, ls[k], rs[k] + 1);
+            Arrays.sort(copy);
+            expected += copy[500];
+        }
+        final double sortMs = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%d medians of 1000 elements: %.1f ms by wavelet matrix, %.1f ms by sorting, %s\n",
+                q, waveletMs, sortMs, sink == expected ? "same answers" : "DIFFERENT ANSWERS");
+    }
+}
@@ -0,0 +1,71 @@
+package range;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PrefixSumArray: build time, and single and batch query throughput. PrefixSumArray has no
+ * batch API, so the batch benchmark is a plain loop over rangeSum, the baseline for queryAll.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PrefixSumArrayBenchmark {
+    @Param({"1000", "1000000", "100000000"})
+    int size;
+
+    int[] values;
+    PrefixSumArray prefixSum;
+    int[] lefts;
+    int[] rights;
+    int[] out;
+    int cursor;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(Workload.SEED);
+        values = Workload.values(size, random);
+        prefixSum = new PrefixSumArray(values);
+        lefts = new int[Workload.OPERATIONS];
+        rights = new int[Workload.OPERATIONS];
+        out = new int[Workload.OPERATIONS];
+        Workload.ranges(size, random, lefts, rights);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public PrefixSumArray build() {
+        return new PrefixSumArray(values);
+    }
+
+    @Benchmark
+    public int query() {
+        final int k = cursor++ & Workload.MASK;
+        return prefixSum.rangeSum(lefts[k], rights[k]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Workload.OPERATIONS)
+    public int[] queryBatch() {
+        for (int k = 0; k < Workload.OPERATIONS; k++) {
+            out[k] = prefixSum.rangeSum(lefts[k], rights[k]);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,77 @@
+package range;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PrefixSumMatrix over side * side matrices, i.e. 1K, 1M and 100M cells: build time, and
+ * single and batch query throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PrefixSumMatrixBenchmark {
+    @Param({"32", "1000", "10000"})
+    int side;
+
+    long[] values;
+    PrefixSumMatrix matrix;
+    int[] r0s;
+    int[] c0s;
+    int[] r1s;
+    int[] c1s;
+    long[] out;
+    int cursor;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(Workload.SEED);
+        values = new long[side * side];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(1000);
+        }
+        matrix = new PrefixSumMatrix(values, side, side);
+        r0s = new int[Workload.OPERATIONS];
+        c0s = new int[Workload.OPERATIONS];
+        r1s = new int[Workload.OPERATIONS];
+        c1s = new int[Workload.OPERATIONS];
+        out = new long[Workload.OPERATIONS];
+        Workload.ranges(side, random, r0s, r1s);
+        Workload.ranges(side, random, c0s, c1s);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public PrefixSumMatrix build() {
+        return new PrefixSumMatrix(values, side, side);
+    }
+
+    @Benchmark
+    public long query() {
+        final int k = cursor++ & Workload.MASK;
+        return matrix.getSum(r0s[k], c0s[k], r1s[k], c1s[k]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Workload.OPERATIONS)
+    public long[] queryBatch() {
+        matrix.getSums(r0s, c0s, r1s, c1s, out, Workload.OPERATIONS);
+        return out;
+    }
+}
@@ -0,0 +1,109 @@
+package range;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SegmentTree and IntSegmentTree with a sum query: build time, single and batch query
+ * throughput, and update throughput. SegmentTree boxes on every function application, which
+ * shows up as allocations with -prof gc, IntSegmentTree is the primitive version of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SegmentTreeBenchmark {
+    @Param({"1000", "1000000", "100000000"})
+    int size;
+
+    int[] values;
+    SegmentTree tree;
+    IntSegmentTree intTree;
+    int[] lefts;
+    int[] rights;
+    int[] indices;
+    int[] out;
+    int cursor;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(Workload.SEED);
+        values = Workload.values(size, random);
+        tree = new SegmentTree(values, 0, Integer::sum);
+        intTree = IntSegmentTree.sum(values);
+        lefts = new int[Workload.OPERATIONS];
+        rights = new int[Workload.OPERATIONS];
+        out = new int[Workload.OPERATIONS];
+        Workload.ranges(size, random, lefts, rights);
+        indices = Workload.indices(size, random);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SegmentTree build() {
+        return new SegmentTree(values, 0, Integer::sum);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public IntSegmentTree buildInt() {
+        return IntSegmentTree.sum(values);
+    }
+
+    @Benchmark
+    public int query() {
+        final int k = cursor++ & Workload.MASK;
+        return tree.query(lefts[k], rights[k]);
+    }
+
+    @Benchmark
+    public int queryInt() {
+        final int k = cursor++ & Workload.MASK;
+        return intTree.query(lefts[k], rights[k]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Workload.OPERATIONS)
+    public int[] queryBatch() {
+        tree.queryAll(lefts, rights, out);
+        return out;
+    }
+
+    // the baseline for queryBatch.
+    @Benchmark
+    @OperationsPerInvocation(Workload.OPERATIONS)
+    public int[] queryLoop() {
+        for (int k = 0; k < lefts.length; k++) {
+            out[k] = tree.query(lefts[k], rights[k]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public void update() {
+        final int k = cursor++ & Workload.MASK;
+        tree.set(indices[k], k);
+    }
+
+    @Benchmark
+    public void updateInt() {
+        final int k = cursor++ & Workload.MASK;
+        intTree.set(indices[k], k);
+    }
+}
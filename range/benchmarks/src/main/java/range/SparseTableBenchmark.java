@@ -0,0 +1,85 @@
+package range;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SparseTable: build time, and single and batch query throughput, for MIN, which is answered
+ * in O(1), and SUM, which is answered in O(log(N)).
+ *
+ * The table holds N * log2(N) ints in a single int[], so 100M elements do not fit, the largest
+ * size is 10M, which already needs about 1GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SparseTableBenchmark {
+    @Param({"1000", "1000000", "10000000"})
+    int size;
+
+    @Param({"MIN", "SUM"})
+    SparseTable.Operator operator;
+
+    int[] values;
+    SparseTable table;
+    int[] lefts;
+    int[] rights;
+    int[] out;
+    int cursor;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(Workload.SEED);
+        values = Workload.values(size, random);
+        table = new SparseTable(values, operator);
+        lefts = new int[Workload.OPERATIONS];
+        rights = new int[Workload.OPERATIONS];
+        out = new int[Workload.OPERATIONS];
+        Workload.ranges(size, random, lefts, rights);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SparseTable build() {
+        return new SparseTable(values, operator);
+    }
+
+    @Benchmark
+    public int query() {
+        final int k = cursor++ & Workload.MASK;
+        return table.query(lefts[k], rights[k]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Workload.OPERATIONS)
+    public int[] queryBatch() {
+        table.queryAll(lefts, rights, out);
+        return out;
+    }
+
+    // the baseline for queryBatch.
+    @Benchmark
+    @OperationsPerInvocation(Workload.OPERATIONS)
+    public int[] queryLoop() {
+        for (int k = 0; k < lefts.length; k++) {
+            out[k] = table.query(lefts[k], rights[k]);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,46 @@
+package range;
+
+import java.util.Random;
+
+/**
+ * Random inputs shared by the benchmarks. Every benchmark draws its inputs from a fixed seed,
+ * so runs are comparable, and precomputes them in its setup, so that generating them is not
+ * measured.
+ */
+final class Workload {
+    /** number of precomputed queries or updates, single operation benchmarks cycle through them. */
+    static final int OPERATIONS = 1 << 16;
+    static final int MASK = OPERATIONS - 1;
+    static final long SEED = 42;
+
+    private Workload() {
+    }
+
+    static int[] values(final int n, final Random random) {
+        final int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextInt(1000);
+        }
+        return values;
+    }
+
+    static int[] indices(final int n, final Random random) {
+        final int[] indices = new int[OPERATIONS];
+        for (int k = 0; k < OPERATIONS; k++) {
+            indices[k] = random.nextInt(n);
+        }
+        return indices;
+    }
+
+    /**
+     * Fill lefts and rights with random ranges [lefts[k], rights[k]] of an array of size n.
+     */
+    static void ranges(final int n, final Random random, final int[] lefts, final int[] rights) {
+        for (int k = 0; k < lefts.length; k++) {
+            final int a = random.nextInt(n);
+            final int b = random.nextInt(n);
+            lefts[k] = Math.min(a, b);
+            rights[k] = Math.max(a, b);
+        }
+    }
+}